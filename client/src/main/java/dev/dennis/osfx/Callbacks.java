@@ -31,13 +31,17 @@ public interface Callbacks {
 
     boolean drawSprite(Sprite sprite, int x, int y, int width, int height, int alpha);
 
+    void beginText(AbstractFont font, String text, int x, int y);
+
+    void endText();
+
     boolean drawGlyph(AbstractFont font, byte[] glyph, int x, int y, int width, int height, int rgb);
 
     boolean drawGlyph(AbstractFont font, byte[] glyph, int x, int y, int width, int height, int rgb, int alpha);
 
     boolean drawScene(Scene scene, int cameraX, int cameraY, int cameraZ, int pitch, int yaw, int maxLevel);
 
-    boolean drawModel(Model model, int rotation, int x, int y, int z);
+    boolean drawModel(Model model, int rotation, int x, int y, int z, long hash);
 
     boolean drawModelTriangle(Model model, int index);
 
@@ -40,7 +40,7 @@ public class Main {
         Class<?> clientClass = classLoader.loadClass("client");
         Client client = (Client) clientClass.newInstance();
 
-        Renderer renderer = new Renderer(client, 800, 600);
+        Renderer renderer = new Renderer(client, 800, 600, RendererOptions.fromSystemProperties());
         renderer.start(config);
     }
 }
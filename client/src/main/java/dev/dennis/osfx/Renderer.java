@@ -75,22 +75,34 @@ public class Renderer implements Callbacks {
 
     public static final int WHITE_RGBA = 0xFFFFFFFF;
 
-    private static final int SMALL_TEXTURE_SIZE = 64;
-
     private static final int TEXTURE_SIZE = 128;
 
     private static final int LOCAL_TILE_SIZE = 128;
 
     private static final int INVALID_TILE_COLOR = 12345678;
 
+    private static final int PALETTE_SIZE = 256;
+
     public static final int BACKGROUND_VIEW = 0;
 
     public static final int UI_VIEW = 1;
 
     public static final int SCENE_VIEW = 2;
 
+    public static final int SCENE_TRANSPARENT_VIEW = 3;
+
+    private static final int REGION_VIEW_BASE = 4;
+
+    private static final int LOCKSTEP_PACKET_COUNT = 2;
+
+    private static final int PIPELINED_PACKET_COUNT = 3;
+
+    private static final long PACKET_POLL_NANOS = 16_000_000L;
+
     private final Client client;
 
+    private final RendererOptions options;
+
     private final CyclicBarrier barrier;
 
     private int width;
@@ -105,9 +117,9 @@ public class Renderer implements Callbacks {
 
     private BGFXCaps bgfxCaps;
 
-    private int lastMouseX;
+    private volatile int lastMouseX;
 
-    private int lastMouseY;
+    private volatile int lastMouseY;
 
     private int frame;
 
@@ -117,13 +129,83 @@ public class Renderer implements Callbacks {
 
     private final List<Short> vertexBuffersToRemove;
 
-    private final List<RenderCommand> renderCommands;
+    private final List<Short> indexBuffersToRemove;
+
+    private volatile FramePipeline pipeline;
+
+    private volatile FramePacket recordingPacket;
+
+    private ModelSubmitter modelSubmitter;
+
+    private VertexPacker vertexPacker;
+
+    private ModelCache modelCache;
+
+    private TerrainCache terrainCache;
+
+    private FrustumCuller frustumCuller;
+
+    private Matrix4f sceneMatrix;
+
+    private boolean cullingActive;
+
+    private boolean gpuScene;
+
+    private ModelPicker modelPicker;
+
+    private boolean pickingActive;
+
+    private ModelDrawBenchmark modelDrawBenchmark;
+
+    private SpriteAtlas spriteAtlas;
+
+    private UiBatcher uiBatcher;
+
+    private UiRegionCache uiRegionCache;
+
+    private IndexedSpriteCache indexedSpriteCache;
 
-    private final List<RenderModelCommand> renderModelCommands;
+    private short quadPaletteProgram;
 
-    private Dimension lastCanvasSize;
+    private short quadPaletteUniform;
 
-    private IntBuffer fullscreenTextureBuf;
+    private AbstractFont textFont;
+
+    private RenderTextRunCommand textRun;
+
+    private TextRunCache textRunCache;
+
+    private String textString;
+
+    private int textX;
+
+    private int textY;
+
+    private int textRunCount;
+
+    private RenderTextRunCommand cachedTextRun;
+
+    private int cachedTextGlyphs;
+
+    private int cachedTextIndex;
+
+    private TransparentSorter transparentSorter;
+
+    private boolean texturesCaptured;
+
+    private int lastCanvasWidth;
+
+    private int lastCanvasHeight;
+
+    private final DirtyRectTracker dirtyRectTracker;
+
+    private final ModelBounds modelBounds;
+
+    private boolean rasterSkipped;
+
+    private int uploadedRects;
+
+    private long uploadedPixels;
 
     private IntBuffer whiteTextureBuf;
 
@@ -131,10 +213,24 @@ public class Renderer implements Callbacks {
 
     private BGFXVertexLayout sceneLayout;
 
+    private SceneVertexFormat sceneVertexFormat;
+
     private short quadProgram;
 
     private short sceneProgram;
 
+    private short instancedSceneProgram;
+
+    private boolean gpuPalette;
+
+    private short paletteUniform;
+
+    private short paletteTextureId;
+
+    private boolean paletteCaptured;
+
+    private int capturedPaletteStamp;
+
     private short fullscreenTextureId;
 
     private short whiteTextureId;
@@ -151,11 +247,19 @@ public class Renderer implements Callbacks {
 
     private int lastViewportHeight;
 
-    private final ByteBuffer[] vertexBuffers;
+    private VertexRing vertexRing;
 
-    private short vertexBufferId;
+    private int transparentVertexStart;
 
-    private int vertexCount;
+    private int vertexArenaHighWater;
+
+    private short shortIndexBufferId;
+
+    private short wideIndexBufferId;
+
+    private volatile int lastReservedVertexCount;
+
+    private volatile int lastPackedVertexCount;
 
     private static boolean isPointOnCanvas(Canvas canvas, int x, int y) {
         return x >= canvas.getX() && y >= canvas.getY()
@@ -222,38 +326,35 @@ public class Renderer implements Callbacks {
                 );
     }
 
-    private static void addSceneVertex(ByteBuffer vertex, int x, int y, int z, int rgb, int alpha, float u, float v,
-                                       int textureId) {
-        int r = rgb >> 16 & 0xFF;
-        int g = rgb >> 8 & 0xFF;
-        int b = rgb & 0xFF;
-
-        vertex.putFloat(x);
-        vertex.putFloat(y);
-        vertex.putFloat(z);
-        vertex.putInt(alpha << 24 | b << 16 | g << 8 | r);
-        vertex.putFloat(u);
-        vertex.putFloat(v);
-        vertex.putFloat(textureId);
+    public Renderer(Client client, int width, int height) {
+        this(client, width, height, new RendererOptions());
     }
 
-    public Renderer(Client client, int width, int height) {
+    public Renderer(Client client, int width, int height, RendererOptions options) {
         this.client = client;
+        this.options = options;
         this.barrier = new CyclicBarrier(2);
         this.width = width;
         this.height = height;
         this.buffersToRemove = new ArrayList<>();
         this.texturesToRemove = new ArrayList<>();
         this.vertexBuffersToRemove = new ArrayList<>();
-        this.renderCommands = new ArrayList<>();
-        this.renderModelCommands = new ArrayList<>();
+        this.indexBuffersToRemove = new ArrayList<>();
         this.fullscreenTextureId = -1;
+        this.dirtyRectTracker = new DirtyRectTracker();
+        this.modelBounds = new ModelBounds();
         this.whiteTextureId = -1;
         this.textureArrayId = -1;
         this.matrix = new Matrix4f();
+        this.sceneMatrix = new Matrix4f();
         this.frameBufferId = -1;
-        this.vertexBufferId = -1;
-        this.vertexBuffers = new ByteBuffer[2];
+        this.shortIndexBufferId = -1;
+        this.wideIndexBufferId = -1;
+        this.instancedSceneProgram = -1;
+        this.paletteUniform = -1;
+        this.paletteTextureId = -1;
+        this.quadPaletteProgram = -1;
+        this.quadPaletteUniform = -1;
     }
 
     private void startClient(OsrsConfig config) {
@@ -282,6 +383,8 @@ public class Renderer implements Callbacks {
                 render();
             }
 
+            pipeline.close();
+
             // data is managed from main thread, and it's passed to renderer
             // just as MemoryRef. At this point the renderer might be using it. We must wait
             // for the previous frame to finish before we can free it.
@@ -340,8 +443,15 @@ public class Renderer implements Callbacks {
 
         bgfx_set_platform_data(platformData);
 
+        int submitWorkerCount = options.getSubmitWorkerCount();
+        if (submitWorkerCount == 0 && options.isSubmitBenchmark()) {
+            submitWorkerCount = ModelSubmitter.getDefaultWorkerCount();
+        }
+        modelSubmitter = new ModelSubmitter(submitWorkerCount, options.isSubmitBenchmark());
+
         BGFXInit init = BGFXInit.mallocStack(stack);
         bgfx_init_ctor(init);
+        init.limits().maxEncoders((short) (modelSubmitter.getWorkerCount() + 1));
         init.type(BGFX_RENDERER_TYPE_COUNT)
                 .callback(createBgfxCallbacks(stack))
                 .resolution(it -> it
@@ -365,6 +475,8 @@ public class Renderer implements Callbacks {
     private void initRenderer(MemoryStack stack) {
         if (DEBUG) {
             bgfx_set_debug(BGFX_DEBUG_TEXT | BGFX_DEBUG_STATS);
+        } else if (options.isDebugStats()) {
+            bgfx_set_debug(BGFX_DEBUG_TEXT);
         }
 
         bgfx_set_view_clear(BACKGROUND_VIEW,
@@ -379,16 +491,21 @@ public class Renderer implements Callbacks {
                 1.0f,
                 0);
 
+        // UI quads share one program and state, so submission order is their only order
+        bgfx_set_view_mode(UI_VIEW, BGFX_VIEW_MODE_SEQUENTIAL);
+
         bgfx_set_view_clear(SCENE_VIEW,
                 BGFX_CLEAR_COLOR | BGFX_CLEAR_DEPTH,
                 0x000000FF,
                 1.0f,
                 0);
 
-        BGFXTextureInfo textureInfo = BGFXTextureInfo.mallocStack(stack);
-        bgfx_calc_texture_size(textureInfo, MAX_WIDTH, MAX_HEIGHT, 1, false, false,
-                1, BGFX_TEXTURE_FORMAT_BGRA8);
-        fullscreenTextureBuf = MemoryUtil.memAllocInt(textureInfo.storageSize() / 4 + 1);
+        bgfx_set_view_clear(SCENE_TRANSPARENT_VIEW,
+                BGFX_CLEAR_NONE,
+                0x000000FF,
+                1.0f,
+                0);
+
         whiteTextureBuf = MemoryUtil.memAllocInt(1);
         whiteTextureBuf.put(WHITE_RGBA);
         whiteTextureBuf.flip();
@@ -396,48 +513,161 @@ public class Renderer implements Callbacks {
                 BGFX_TEXTURE_FORMAT_BGRA8, BGFX_TEXTURE_NONE, bgfx_make_ref(whiteTextureBuf));
 
         quadProgram = createProgram("vs_quad", "fs_quad");
-        sceneProgram = createProgram("vs_scene", "fs_scene");
+        sceneVertexFormat = SceneVertexFormat.STANDARD;
+        if (options.isCompactVertices()) {
+            if ((bgfxCaps.supported() & BGFX_CAPS_VERTEX_ATTRIB_HALF) == 0) {
+                System.out.println("Half float vertex attributes are unsupported, using the standard vertex format");
+            } else {
+                try {
+                    sceneProgram = createProgram("vs_scene_compact", "fs_scene");
+                    sceneVertexFormat = SceneVertexFormat.COMPACT;
+                } catch (RuntimeException e) {
+                    System.out.println("Compact scene shader unavailable, using the standard vertex format: "
+                            + e.getMessage());
+                }
+            }
+        }
+        if (sceneVertexFormat == SceneVertexFormat.STANDARD) {
+            sceneProgram = createProgram("vs_scene", "fs_scene");
+        }
+
+        if (options.isGpuPalette()) {
+            String vertexShaderName = sceneVertexFormat == SceneVertexFormat.COMPACT ? "vs_scene_compact" : "vs_scene";
+            try {
+                short paletteProgram = createProgram(vertexShaderName + "_palette", "fs_scene");
+                bgfx_destroy_program(sceneProgram);
+                sceneProgram = paletteProgram;
+                paletteUniform = bgfx_create_uniform("s_palette", BGFX_UNIFORM_TYPE_SAMPLER, 1);
+                paletteTextureId = bgfx_create_texture_2d(PALETTE_SIZE, PALETTE_SIZE, false, 1,
+                        BGFX_TEXTURE_FORMAT_BGRA8, BGFX_TEXTURE_NONE, null);
+                modelSubmitter.setPalette(paletteUniform, paletteTextureId);
+                gpuPalette = true;
+            } catch (RuntimeException e) {
+                System.out.println("Palette scene shader unavailable, colours will be looked up on the CPU: "
+                        + e.getMessage());
+            }
+        }
 
         layout = createVertexLayout(false, true, true, false);
-        sceneLayout = createVertexLayout(false, true, true, true);
+        uiBatcher = new UiBatcher(layout, UI_VIEW, quadProgram, options.isUiBatching());
+        if (options.isTextRuns() && options.isTextCache()) {
+            textRunCache = new TextRunCache();
+        }
+        if (options.isUiRegionCache()) {
+            uiRegionCache = new UiRegionCache(REGION_VIEW_BASE, bgfxCaps.homogeneousDepth(),
+                    bgfxCaps.originBottomLeft());
+            // Region targets have to be drawn before the UI view composites them
+            short[] viewOrder = new short[REGION_VIEW_BASE + UiRegionCache.REGION_COUNT];
+            int viewCount = 0;
+            viewOrder[viewCount++] = BACKGROUND_VIEW;
+            for (int i = 0; i < UiRegionCache.REGION_COUNT; i++) {
+                viewOrder[viewCount++] = (short) (REGION_VIEW_BASE + i);
+            }
+            viewOrder[viewCount++] = UI_VIEW;
+            viewOrder[viewCount++] = SCENE_VIEW;
+            viewOrder[viewCount++] = SCENE_TRANSPARENT_VIEW;
+            bgfx_set_view_order(0, viewCount, viewOrder);
+        }
+        if (options.isGpuIndexedSprites()) {
+            try {
+                quadPaletteProgram = createProgram("vs_quad", "fs_quad_palette");
+                quadPaletteUniform = bgfx_create_uniform("s_palette", BGFX_UNIFORM_TYPE_SAMPLER, 1);
+                uiBatcher.setPaletteProgram(quadPaletteProgram, quadPaletteUniform);
+                indexedSpriteCache = new IndexedSpriteCache();
+            } catch (RuntimeException e) {
+                System.out.println("Palette quad shader unavailable, indexed sprites will be expanded on the CPU: "
+                        + e.getMessage());
+            }
+        }
+        if (sceneVertexFormat == SceneVertexFormat.COMPACT) {
+            sceneLayout = createCompactSceneLayout();
+        } else {
+            sceneLayout = createVertexLayout(false, true, true, true);
+        }
+
+        if (options.isModelInstancing()) {
+            // The standard layout already uses TEXCOORD7, which bgfx reserves for the first instance attribute
+            if (sceneVertexFormat != SceneVertexFormat.COMPACT
+                    || (bgfxCaps.supported() & BGFX_CAPS_INSTANCING) == 0) {
+                System.out.println("Instanced drawing needs compact vertices and instancing support, "
+                        + "repeated models will be drawn one by one");
+            } else {
+                try {
+                    instancedSceneProgram = createProgram(gpuPalette ? "vs_scene_compact_instanced_palette"
+                            : "vs_scene_compact_instanced", "fs_scene");
+                    modelSubmitter.setInstancedProgram(instancedSceneProgram);
+                } catch (RuntimeException e) {
+                    System.out.println("Instanced scene shader unavailable: " + e.getMessage());
+                }
+            }
+        }
 
         matrixBuf = MemoryUtil.memAllocFloat(16);
 
-        int initialTriangleCount = 2 << 17;
-        for (int i = 0; i < vertexBuffers.length; i++) {
-            vertexBuffers[i] = MemoryUtil.memAlloc(initialTriangleCount * 3 * sceneLayout.stride());
+        if (options.isParallelPacking()) {
+            vertexPacker = new VertexPacker(options.getPackingThreadCount());
         }
+        if (options.isModelCache()) {
+            modelCache = new ModelCache(sceneVertexFormat.getStride(), options.getModelCacheBytes(),
+                    options.getModelCacheUploadBytes());
+        }
+        if (options.isTerrainChunks()) {
+            terrainCache = new TerrainCache(sceneVertexFormat);
+        }
+        vertexRing = new VertexRing(sceneLayout, sceneVertexFormat.getStride(),
+                Math.max(1, options.getVertexArenaPages()) * VertexArena.PAGE_VERTICES);
+        if (options.isGpuScene()) {
+            if (terrainCache == null) {
+                System.out.println("GPU scene traversal needs terrain chunks, tiles will be drawn in software");
+            } else {
+                gpuScene = true;
+            }
+        }
+        if (options.isFrustumCulling() || gpuScene) {
+            frustumCuller = new FrustumCuller();
+        }
+        if (options.isGpuModels() || options.isModelPicking() || gpuScene) {
+            modelPicker = new ModelPicker();
+        }
+        if (options.isGpuModels() && options.isGpuModelsBenchmark()) {
+            modelDrawBenchmark = new ModelDrawBenchmark();
+        }
+        if (options.isSpriteAtlas()) {
+            spriteAtlas = new SpriteAtlas(options.getSpriteAtlasPages());
+            for (SpriteAtlasPage page : spriteAtlas.getPages()) {
+                page.setTextureId(bgfx_create_texture_2d(SpriteAtlas.PAGE_SIZE, SpriteAtlas.PAGE_SIZE, false, 1,
+                        BGFX_TEXTURE_FORMAT_BGRA8, BGFX_TEXTURE_NONE, null));
+            }
+        }
+        if (options.isTransparencySort()) {
+            transparentSorter = new TransparentSorter();
+            // Transparent triangles are drawn sorted in their own view, so the opaque pass needs no blending
+            modelSubmitter.setState(BGFX_STATE_DEFAULT);
+        }
+
+        // Publishing the pipeline is what lets the client thread start recording
+        int packetCount = options.isPipelined() ? PIPELINED_PACKET_COUNT : LOCKSTEP_PACKET_COUNT;
+        pipeline = new FramePipeline(packetCount, sceneVertexFormat, options.getVertexArenaPages());
     }
 
-    private void initTextureArray() {
+    private void captureTextures(FramePacket packet) {
         TextureProvider textureProvider = client.getTextureProvider();
         if (textureProvider == null) {
             return;
         }
         Texture[] textures = textureProvider.getTextures();
 
-        int textureCount = textures.length + 1;
+        boolean force = !texturesCaptured;
+        if (force) {
+            packet.setTextureCount(textures.length + 1);
 
-        textureArrayId = bgfx_create_texture_2d(TEXTURE_SIZE, TEXTURE_SIZE, false, textureCount,
-                BGFX_TEXTURE_FORMAT_BGRA8, BGFX_TEXTURE_NONE, null);
-
-        initDefaultTexture();
-
-        updateTextures(true);
-    }
+            int[] pixels = new int[TEXTURE_SIZE * TEXTURE_SIZE];
+            Arrays.fill(pixels, WHITE_RGBA);
+            packet.addTextureUpload(0, pixels);
 
-    private void initDefaultTexture() {
-        int[] pixels = new int[TEXTURE_SIZE * TEXTURE_SIZE];
-        Arrays.fill(pixels, WHITE_RGBA);
-        updateTexture(0, pixels);
-    }
-
-    private void updateTextures(boolean force) {
-        TextureProvider textureProvider = client.getTextureProvider();
-        if (textureProvider == null) {
-            return;
+            texturesCaptured = true;
         }
-        Texture[] textures = textureProvider.getTextures();
+
         for (int id = 0; id < textures.length; id++) {
             Texture texture = textures[id];
             if (texture != null && (!texture.isLoaded() || force)) {
@@ -445,24 +675,23 @@ public class Renderer implements Callbacks {
                 if (pixels == null) {
                     continue;
                 }
-                updateTexture(id + 1, pixels);
+                packet.addTextureUpload(id + 1, pixels);
             }
         }
     }
 
-    private void updateTexture(int layer, int[] pixels) {
-        for (int i = 0; i < pixels.length; i++) {
-            if (pixels[i] != 0) {
-                pixels[i] |= 0xFF << 24;
-            }
+    private void updateTextureArray(FramePacket packet) {
+        if (textureArrayId == -1 && packet.getTextureCount() != -1) {
+            textureArrayId = bgfx_create_texture_2d(TEXTURE_SIZE, TEXTURE_SIZE, false, packet.getTextureCount(),
+                    BGFX_TEXTURE_FORMAT_BGRA8, BGFX_TEXTURE_NONE, null);
+        }
+        if (textureArrayId == -1) {
+            return;
+        }
+        for (TextureUpload upload : packet.getTextureUploads()) {
+            bgfx_update_texture_2d(textureArrayId, upload.getLayer(), 0, 0, 0, upload.getSize(), upload.getSize(),
+                    bgfx_make_ref(upload.getPixelsBuf()), 0xFFFF);
         }
-        int size = pixels.length == 4096 ? SMALL_TEXTURE_SIZE : TEXTURE_SIZE;
-        IntBuffer pixelBuffer = MemoryUtil.memAllocInt(pixels.length);
-        pixelBuffer.put(pixels);
-        pixelBuffer.flip();
-        buffersToRemove.add(pixelBuffer);
-        bgfx_update_texture_2d(textureArrayId, layer, 0, 0, 0, size, size,
-                bgfx_copy(pixelBuffer), 0xFFFF);
     }
 
     private void destroy() {
@@ -471,6 +700,13 @@ public class Renderer implements Callbacks {
 
         stopClient();
 
+        // The client thread may still be recording into a packet until it has stopped
+        pipeline.free(this);
+        for (Buffer buf : buffersToRemove) {
+            MemoryUtil.memFree(buf);
+        }
+        buffersToRemove.clear();
+
         System.out.println("Destroyed");
     }
 
@@ -483,10 +719,24 @@ public class Renderer implements Callbacks {
     }
 
     private void destroyBgfx() {
-        MemoryUtil.memFree(fullscreenTextureBuf);
         MemoryUtil.memFree(whiteTextureBuf);
         MemoryUtil.memFree(matrixBuf);
 
+        modelSubmitter.free();
+        System.out.println("Vertex arena high water mark: " + vertexArenaHighWater
+                + " pages, start with -Dosfx.vertexArenaPages=" + vertexArenaHighWater + " to allocate them up front");
+        if (vertexPacker != null) {
+            vertexPacker.shutdown();
+        }
+        if (terrainCache != null) {
+            terrainCache.shutdown();
+        }
+
+        vertexRing.free();
+        uiBatcher.free();
+        if (uiRegionCache != null) {
+            uiRegionCache.free();
+        }
         layout.free();
         sceneLayout.free();
 
@@ -498,6 +748,22 @@ public class Renderer implements Callbacks {
 
         bgfx_destroy_program(quadProgram);
         bgfx_destroy_program(sceneProgram);
+        if (instancedSceneProgram != -1) {
+            bgfx_destroy_program(instancedSceneProgram);
+        }
+        if (gpuPalette) {
+            bgfx_destroy_texture(paletteTextureId);
+            bgfx_destroy_uniform(paletteUniform);
+        }
+        if (spriteAtlas != null) {
+            for (SpriteAtlasPage page : spriteAtlas.getPages()) {
+                bgfx_destroy_texture(page.getTextureId());
+            }
+        }
+        if (indexedSpriteCache != null) {
+            bgfx_destroy_program(quadPaletteProgram);
+            bgfx_destroy_uniform(quadPaletteUniform);
+        }
 
         bgfx_shutdown();
 
@@ -505,11 +771,62 @@ public class Renderer implements Callbacks {
     }
 
     private void render() {
+        if (options.isPipelined()) {
+            renderPipelined();
+        } else {
+            renderLockstep();
+        }
+    }
+
+    private void renderLockstep() {
         sync();
 
         // Start of frame
         glfwPollEvents();
 
+        removeDeferredResources();
+
+        FramePacket packet = pipeline.acquire();
+        if (packet == null) {
+            // The pipeline is closing, but the client still waits on the rest of the frame's barriers
+            sync();
+            sync();
+            sync();
+            return;
+        }
+        beginRecording(packet);
+        recordingPacket = packet;
+
+        sync();
+
+        // Client is drawing
+        packet.setRecordStart(System.nanoTime());
+
+        sync();
+
+        // End of frame
+        recordingPacket = null;
+        capture(packet);
+        packet.setRecordEnd(System.nanoTime());
+
+        submit(packet);
+
+        sync();
+    }
+
+    private void renderPipelined() {
+        glfwPollEvents();
+
+        removeDeferredResources();
+
+        // The client records the next frame into another packet while this one is submitted
+        FramePacket packet = pipeline.poll(PACKET_POLL_NANOS);
+        if (packet != null) {
+            submit(packet);
+        }
+    }
+
+    private void removeDeferredResources() {
         for (Buffer buf : buffersToRemove) {
             MemoryUtil.memFree(buf);
         }
@@ -525,28 +842,83 @@ public class Renderer implements Callbacks {
         }
         vertexBuffersToRemove.clear();
 
-        for (RenderCommand command : renderCommands) {
-            command.cleanup(this);
+        for (short id : indexBuffersToRemove) {
+            bgfx_destroy_index_buffer(id);
         }
-        renderCommands.clear();
+        indexBuffersToRemove.clear();
+    }
 
-        renderModelCommands.clear();
+    private void capture(FramePacket packet) {
+        if (pickingActive) {
+            client.setMouseOverHashes(modelPicker.pick());
+            pickingActive = false;
+        }
 
-        vertexBuffers[frame % 2].clear();
-        vertexCount = 0;
+        if (terrainCache != null) {
+            terrainCache.emitCommands(packet, gpuScene && cullingActive ? frustumCuller : null);
+        }
 
-        sync();
+        Canvas canvas = client.getCanvas();
+        packet.setCanvasPosition(canvas.getX(), canvas.getY());
+        packet.capturePixels(client.getBufferProvider().getPixels(), canvas.getWidth(), canvas.getHeight(),
+                dirtyRectTracker);
+        // A blank raster looks the same as the UI view's clear, so its quad can be left out
+        packet.setRasterDrawn(!options.isSkipBlankRaster() || !dirtyRectTracker.isBlank());
 
-        // Client is drawing
+        Widget viewportWidget = client.getViewportWidget();
+        if (viewportWidget != null) {
+            packet.setViewport(true, viewportWidget.getWidth(), viewportWidget.getHeight());
+            packet.setCamera(client.getCameraPitch(), client.getCameraYaw(), client.getCameraZoom());
+            captureTextures(packet);
+        } else {
+            packet.setViewport(false, 0, 0);
+        }
+    }
 
-        sync();
+    private void submit(FramePacket packet) {
+        long submitStart = System.nanoTime();
 
-        // End of frame
+        if (vertexPacker != null) {
+            vertexPacker.pack(packet);
+        }
 
-        Canvas canvas = client.getCanvas();
+        for (ModelCacheEntry entry : packet.getModelCacheUploads()) {
+            ByteBuffer vertices = packet.getVertexSlice(entry.getUploadVertexStart(), entry.getVertexCount());
+            entry.setVertexBufferId(bgfx_create_vertex_buffer(bgfx_copy(vertices), sceneLayout, 0));
+        }
+
+        for (TerrainChunkBuffer buffer : packet.getTerrainUploads()) {
+            if (buffer.getVertexCount() > 0) {
+                buffer.setVertexBufferId(bgfx_create_vertex_buffer(bgfx_copy(buffer.getVertices()), sceneLayout,
+                        0));
+            }
+            buffer.freeVertices();
+        }
+
+        if (gpuPalette && packet.isPaletteChanged()) {
+            bgfx_update_texture_2d(paletteTextureId, 0, 0, 0, 0, PALETTE_SIZE, PALETTE_SIZE,
+                    bgfx_make_ref(packet.getPaletteBuf()), 0xFFFF);
+        }
+
+        for (SpriteUpload upload : packet.getSpriteUploads()) {
+            bgfx_update_texture_2d(upload.getPage().getTextureId(), 0, 0, upload.getX(), upload.getY(),
+                    upload.getWidth(), upload.getHeight(), bgfx_make_ref(upload.getPixelsBuf()), 0xFFFF);
+        }
+        for (IndexedSpriteUpload upload : packet.getIndexedSpriteUploads()) {
+            IndexedSpriteEntry entry = upload.getEntry();
+            entry.setIndexTextureId(bgfx_create_texture_2d(entry.getWidth(), entry.getHeight(), false, 1,
+                    BGFX_TEXTURE_FORMAT_R8, BGFX_TEXTURE_NONE, bgfx_make_ref(upload.getIndicesBuf())));
+            entry.setPaletteTextureId(bgfx_create_texture_2d(IndexedSpriteCache.PALETTE_SIZE, 1, false, 1,
+                    BGFX_TEXTURE_FORMAT_BGRA8, BGFX_TEXTURE_NONE, bgfx_make_ref(upload.getPaletteBuf())));
+        }
+        // Destroyed with the next frame, after any draw of this packet that still uses them
+        for (IndexedSpriteEntry entry : packet.getIndexedSpriteReleases()) {
+            texturesToRemove.add(entry.getIndexTextureId());
+            texturesToRemove.add(entry.getPaletteTextureId());
+        }
 
         bgfx_set_view_rect(BACKGROUND_VIEW, 0, 0, width, height);
-        bgfx_set_view_rect(UI_VIEW, canvas.getX(), canvas.getY(), width, height);
+        bgfx_set_view_rect(UI_VIEW, packet.getCanvasX(), packet.getCanvasY(), width, height);
 
         matrix.setOrthoLH(0.0f, width, height, 0.0f, 0.0f, 1.0f, !bgfxCaps.homogeneousDepth());
         matrix.get(matrixBuf);
@@ -554,12 +926,16 @@ public class Renderer implements Callbacks {
 
         long encoder = bgfx_encoder_begin(false);
 
-        renderFullscreenTexture(encoder);
+        // Changed rectangles are uploaded even when the quad is skipped, as later frames only upload what differs
+        updateFullscreenTexture(packet);
+        rasterSkipped = !packet.isRasterDrawn();
+        if (!rasterSkipped) {
+            renderFullscreenTexture(encoder, packet);
+        }
 
-        Widget viewportWidget = client.getViewportWidget();
-        if (viewportWidget != null) {
-            int viewportWidth = viewportWidget.getWidth();
-            int viewportHeight = viewportWidget.getHeight();
+        if (packet.isViewportVisible()) {
+            int viewportWidth = packet.getViewportWidth();
+            int viewportHeight = packet.getViewportHeight();
             if (frameBufferId == -1 || lastViewportWidth != viewportWidth || lastViewportHeight != viewportHeight) {
                 if (frameBufferId != -1) {
                     bgfx_destroy_frame_buffer(frameBufferId);
@@ -581,69 +957,233 @@ public class Renderer implements Callbacks {
 
             int centerX = viewportWidth / 2;
             int centerY = viewportHeight / 2;
-            int pitch = client.getCameraPitch();
-            int yaw = client.getCameraYaw();
-            int zoom = client.getCameraZoom();
-            setFrustumMatrix(0, 0, centerX, centerY, viewportWidth, viewportHeight,
-                    pitch, yaw, zoom);
+            setFrustumMatrix(matrix, 0, 0, centerX, centerY, viewportWidth, viewportHeight,
+                    packet.getCameraPitch(), packet.getCameraYaw(), packet.getCameraZoom());
 
             bgfx_set_view_transform(SCENE_VIEW, null, matrix.get(matrixBuf));
+            if (transparentSorter != null) {
+                bgfx_set_view_frame_buffer(SCENE_TRANSPARENT_VIEW, frameBufferId);
+                bgfx_set_view_rect(SCENE_TRANSPARENT_VIEW, 0, 0, viewportWidth, viewportHeight);
+                bgfx_set_view_transform(SCENE_TRANSPARENT_VIEW, null, matrixBuf);
+            }
 
             bgfx_encoder_set_scissor(encoder, 0, 0, width, height);
 
-            if (textureArrayId == -1) {
-                initTextureArray();
-            } else {
-                updateTextures(false);
-            }
+            updateTextureArray(packet);
 
-            if (vertexBufferId != -1) {
-                vertexBuffersToRemove.add(vertexBufferId);
-                vertexBufferId = -1;
+            if (transparentSorter != null && !packet.getTransparentModelCommands().isEmpty()) {
+                // Sorted by the scene view's matrix, which is still loaded
+                transparentSorter.encode(packet, matrix);
             }
 
-            ByteBuffer vertexBuffer = vertexBuffers[frame % 2];
-            vertexBuffer.flip();
-            if (vertexCount > 0) {
-                vertexBufferId = bgfx_create_vertex_buffer(bgfx_make_ref(vertexBuffer), sceneLayout, 0);
-
-                for (RenderModelCommand command : renderModelCommands) {
-                    if (command.getVertexCount() == 0) {
-                        continue;
-                    }
-
-                    matrix.identity().translate(command.getX(), command.getY(), command.getZ())
-                            .rotateY(command.getRotation() * RS_TO_RADIANS);
-                    bgfx_encoder_set_transform(encoder, matrix.get(matrixBuf));
-
-                    bgfx_encoder_set_vertex_buffer(encoder, 0, vertexBufferId, command.getVertexStart(),
-                            command.getVertexCount(), BGFX_INVALID_HANDLE);
+            if (shortIndexBufferId != -1) {
+                indexBuffersToRemove.add(shortIndexBufferId);
+                shortIndexBufferId = -1;
+            }
+            if (wideIndexBufferId != -1) {
+                indexBuffersToRemove.add(wideIndexBufferId);
+                wideIndexBufferId = -1;
+            }
 
-                    bgfx_encoder_set_state(encoder, BGFX_STATE_DEFAULT | BGFX_STATE_BLEND_ALPHA, 0);
-                    bgfx_encoder_set_texture(encoder, 0, (short) 0, textureArrayId, BGFX_SAMPLER_U_CLAMP);
+            if (options.isIndexedGeometry()) {
+                uploadIndexedGeometry(packet);
+            } else {
+                uploadSceneVertices(packet, false);
+            }
+            if (!packet.getRenderModelCommands().isEmpty()) {
+                modelSubmitter.submit(encoder, packet.getRenderModelCommands(), packet.getVertexArena(),
+                        vertexRing.getVertexBufferId(), shortIndexBufferId, wideIndexBufferId, textureArrayId,
+                        SCENE_VIEW, sceneProgram);
+            }
+            if (packet.getTransparentVertexCount() > 0) {
+                submitTransparentTriangles(encoder, packet);
+            }
+        }
 
-                    bgfx_encoder_submit(encoder, SCENE_VIEW, sceneProgram, 0, false);
-                }
+        // Released entries may still have been drawn earlier in this packet
+        for (StaticGeometry geometry : packet.getGeometryReleases()) {
+            if (geometry.getVertexBufferId() != -1) {
+                vertexBuffersToRemove.add(geometry.getVertexBufferId());
+                geometry.setVertexBufferId((short) -1);
             }
         }
 
-        for (RenderCommand command : renderCommands) {
-            command.render(this, encoder);
+        uiBatcher.begin(encoder);
+        if (uiRegionCache != null) {
+            uiRegionCache.render(this, encoder, packet.getRenderCommands(), packet.getCanvasX(),
+                    packet.getCanvasY());
+        } else {
+            for (RenderCommand command : packet.getRenderCommands()) {
+                command.render(this, encoder);
+            }
         }
+        uiBatcher.flush();
 
         bgfx_encoder_end(encoder);
 
         bgfx_touch(BACKGROUND_VIEW);
         bgfx_touch(UI_VIEW);
         bgfx_touch(SCENE_VIEW);
+        if (transparentSorter != null) {
+            bgfx_touch(SCENE_TRANSPARENT_VIEW);
+        }
+
+        if (DEBUG || options.isDebugStats()) {
+            renderFrameStats();
+        }
 
         frame = bgfx_frame(false);
 
-        sync();
+        if (modelDrawBenchmark != null) {
+            modelDrawBenchmark.retire(packet);
+        }
+
+        pipeline.retire(packet, this, submitStart);
+    }
+
+    private void submitTransparentTriangles(long encoder, FramePacket packet) {
+        // The triangles are already encoded in world space
+        bgfx_encoder_set_transform(encoder, matrix.identity().get(matrixBuf));
+        bgfx_encoder_set_dynamic_vertex_buffer(encoder, 0, vertexRing.getVertexBufferId(), transparentVertexStart,
+                packet.getTransparentVertexCount(), BGFX_INVALID_HANDLE);
+        bgfx_encoder_set_state(encoder, BGFX_STATE_DEFAULT & ~BGFX_STATE_WRITE_Z | BGFX_STATE_BLEND_ALPHA, 0);
+        bgfx_encoder_set_texture(encoder, 0, (short) 0, textureArrayId, BGFX_SAMPLER_U_CLAMP);
+        if (gpuPalette) {
+            bgfx_encoder_set_texture(encoder, 1, paletteUniform, paletteTextureId,
+                    BGFX_SAMPLER_POINT | BGFX_SAMPLER_UVW_CLAMP);
+        }
+        bgfx_encoder_submit(encoder, SCENE_TRANSPARENT_VIEW, sceneProgram, 0, false);
+    }
+
+    private void uploadSceneVertices(FramePacket packet, boolean packed) {
+        VertexArena vertexArena = packet.getVertexArena();
+        int vertexCount = packet.getTransparentVertexCount();
+        for (int i = 0; i < vertexArena.getPageCount(); i++) {
+            VertexPage page = vertexArena.getPage(i);
+            vertexCount += packed ? page.getPackedVertexCount() : page.getVertexCount();
+        }
+
+        // Only the written range of the long-lived ring buffer is updated
+        vertexRing.beginFrame(vertexCount);
+        for (int i = 0; i < vertexArena.getPageCount(); i++) {
+            VertexPage page = vertexArena.getPage(i);
+            int pageVertexCount = packed ? page.getPackedVertexCount() : page.getVertexCount();
+            page.setUploadVertexStart(vertexRing.write(page.getSlice(0, pageVertexCount)));
+        }
+        if (packet.getTransparentVertexCount() > 0) {
+            transparentVertexStart = vertexRing.write(packet.getTransparentVertexBuffer());
+        }
+        vertexArenaHighWater = Math.max(vertexArenaHighWater, vertexArena.getHighWaterPages());
+    }
+
+    private void uploadIndexedGeometry(FramePacket packet) {
+        packet.compactVertices();
+        VertexArena vertexArena = packet.getVertexArena();
+        lastReservedVertexCount = vertexArena.getVertexCount();
+        lastPackedVertexCount = vertexArena.getPackedVertexCount();
+
+        uploadSceneVertices(packet, true);
+        if (packet.getIndexCount(false) > 0) {
+            shortIndexBufferId = bgfx_create_index_buffer(bgfx_make_ref(packet.getIndexBuffer(false)), 0);
+        }
+        if (packet.getIndexCount(true) > 0) {
+            wideIndexBufferId = bgfx_create_index_buffer(bgfx_make_ref(packet.getIndexBuffer(true)),
+                    BGFX_BUFFER_INDEX32);
+        }
+    }
+
+    private void renderFrameStats() {
+        bgfx_dbg_text_clear(0, false);
+        bgfx_dbg_text_printf(0, 1, 0x0F, String.format("Frame packets: %s, latency %.2f ms, overlap %.0f%%",
+                options.isPipelined() ? "pipelined" : "lockstep", pipeline.getLatencyMillis(),
+                pipeline.getOverlap() * 100.0));
+        bgfx_dbg_text_printf(0, 2, 0x0F, String.format("Record %.2f ms, submit %.2f ms",
+                pipeline.getRecordMillis(), pipeline.getSubmitMillis()));
+        bgfx_dbg_text_printf(0, 3, 0x0F, String.format("Model submit: single %.3f ms, %d workers %.3f ms",
+                modelSubmitter.getSerialSubmitMillis(), modelSubmitter.getWorkerCount(),
+                modelSubmitter.getParallelSubmitMillis()));
+        if (modelCache != null) {
+            bgfx_dbg_text_printf(0, 4, 0x0F, String.format("Model cache: %d hits, %d misses, %d evictions, %d KB",
+                    modelCache.getHits(), modelCache.getMisses(), modelCache.getEvictions(),
+                    modelCache.getGpuBytes() >> 10));
+        }
+        if (terrainCache != null) {
+            bgfx_dbg_text_printf(0, 5, 0x0F, String.format("Terrain: %d chunk draws, %d culled, %d baked, "
+                            + "%d fallback tiles, %d rebuilds", terrainCache.getChunkDraws(),
+                    terrainCache.getCulledChunks(), terrainCache.getBakedTiles(), terrainCache.getFallbackTiles(),
+                    terrainCache.getRebuilds()));
+        }
+        if (options.isIndexedGeometry()) {
+            int reserved = lastReservedVertexCount;
+            int packed = lastPackedVertexCount;
+            bgfx_dbg_text_printf(0, 6, 0x0F, String.format("Indexed geometry: %d of %d vertices uploaded (%.0f%%)",
+                    packed, reserved, reserved > 0 ? packed * 100.0 / reserved : 0.0));
+        }
+        if (options.isModelInstancing()) {
+            bgfx_dbg_text_printf(0, 7, 0x0F, String.format("Instancing: %d instances in %d draws%s",
+                    modelSubmitter.getInstanceCount(), modelSubmitter.getInstancedDraws(),
+                    instancedSceneProgram != -1 ? "" : " (per-instance fallback)"));
+        }
+        if (frustumCuller != null) {
+            bgfx_dbg_text_printf(0, 8, 0x0F, String.format("Culling: %d/%d models, %d/%d tiles drawn",
+                    frustumCuller.getDrawnModels(), frustumCuller.getDrawnModels() + frustumCuller.getCulledModels(),
+                    frustumCuller.getDrawnTiles(), frustumCuller.getDrawnTiles() + frustumCuller.getCulledTiles()));
+        }
+        if (transparentSorter != null) {
+            bgfx_dbg_text_printf(0, 9, 0x0F, String.format("Transparency: %d triangles sorted in %.3f ms",
+                    transparentSorter.getTriangleCount(), transparentSorter.getSortMillis()));
+        }
+        bgfx_dbg_text_printf(0, 10, 0x0F, String.format("Vertex arena: high water %d pages, %d allocated while "
+                + "recording", vertexArenaHighWater, pipeline.getAllocatedVertexPages()));
+        bgfx_dbg_text_printf(0, 11, 0x0F, String.format("Vertex ring: %d KB, grown %d times",
+                (long) vertexRing.getCapacity() * sceneVertexFormat.getStride() >> 10, vertexRing.getGrowCount()));
+        if (options.isGpuModels()) {
+            bgfx_dbg_text_printf(0, 12, 0x0F, String.format("GPU models: %d skipped, %d drawn in software under "
+                    + "the mouse", modelPicker.getSkippedModels(), modelPicker.getPickedModels()));
+        }
+        if (modelDrawBenchmark != null) {
+            bgfx_dbg_text_printf(0, 13, 0x0F, String.format("Client frame: software models %.2f ms, "
+                            + "GPU models %.2f ms", modelDrawBenchmark.getSoftwareRecordMillis(),
+                    modelDrawBenchmark.getGpuRecordMillis()));
+        }
+        if (modelPicker != null) {
+            bgfx_dbg_text_printf(0, 14, 0x0F, String.format("Picking: %d hits among %d models in %.3f ms",
+                    modelPicker.getHitCount(), modelPicker.getBvhModels(), modelPicker.getPickMillis()));
+        }
+        if (spriteAtlas != null) {
+            bgfx_dbg_text_printf(0, 15, 0x0F, String.format("Sprite atlas: %d hits, %d uploads (%d KB), "
+                            + "%d evictions, %d fallbacks", spriteAtlas.getHits(), spriteAtlas.getUploads(),
+                    spriteAtlas.getUploadBytes() / 1024, spriteAtlas.getEvictions(), spriteAtlas.getFallbacks()));
+        }
+        bgfx_dbg_text_printf(0, 16, 0x0F, String.format("UI: %d quads in %d draw calls, largest batch %d",
+                uiBatcher.getQuads(), uiBatcher.getDrawCalls(), uiBatcher.getLargestBatch()));
+        if (indexedSpriteCache != null) {
+            bgfx_dbg_text_printf(0, 17, 0x0F, String.format("Indexed sprites: %d hits, %d uploads, %d cached",
+                    indexedSpriteCache.getHits(), indexedSpriteCache.getUploads(),
+                    indexedSpriteCache.getCachedSprites()));
+        }
+        if (textRunCache != null) {
+            long lookups = textRunCache.getHits() + textRunCache.getMisses();
+            bgfx_dbg_text_printf(0, 18, 0x0F, String.format("Text cache: %.1f%% hits, %d strings, %d evictions",
+                    lookups > 0 ? textRunCache.getHits() * 100.0 / lookups : 0.0, textRunCache.getSize(),
+                    textRunCache.getEvictions()));
+        }
+        if (uiRegionCache != null) {
+            bgfx_dbg_text_printf(0, 19, 0x0F, String.format("UI regions: cached %d (%d px) vs redrawn %d (%d px)",
+                    uiRegionCache.getCachedRegions(), uiRegionCache.getCachedArea(),
+                    uiRegionCache.getRedrawnRegions(), uiRegionCache.getRedrawnArea()));
+        }
+        if (rasterSkipped) {
+            bgfx_dbg_text_printf(0, 20, 0x0F, String.format("Raster upload: %d rects, %d px, blank so not drawn",
+                    uploadedRects, uploadedPixels));
+        } else {
+            bgfx_dbg_text_printf(0, 20, 0x0F, String.format("Raster upload: %d rects, %d of %d px",
+                    uploadedRects, uploadedPixels, (long) lastCanvasWidth * lastCanvasHeight));
+        }
     }
 
-    private Matrix4f setFrustumMatrix(int offsetX, int offsetY, int centerX, int centerY, int width, int height,
-                                      int pitch, int yaw, int zoom) {
+    private static Matrix4f setFrustumMatrix(Matrix4f matrix, int offsetX, int offsetY, int centerX, int centerY,
+                                             int width, int height, int pitch, int yaw, int zoom) {
         int left = (offsetX - centerX << 9) / zoom;
         int right = (offsetX + width - centerX << 9) / zoom;
         int top = (offsetY - centerY << 9) / zoom;
@@ -661,48 +1201,85 @@ public class Renderer implements Callbacks {
         return matrix;
     }
 
-    private void renderFullscreenTexture(long encoder) {
-        updateFullscreenTexture();
-
-        Canvas canvas = client.getCanvas();
-
+    private void renderFullscreenTexture(long encoder, FramePacket packet) {
         bgfx_encoder_set_texture(encoder, 0, (short) 0, fullscreenTextureId, BGFX_SAMPLER_NONE);
         bgfx_encoder_set_state(encoder, BGFX_STATE_WRITE_RGB | BGFX_STATE_WRITE_A, 0);
-        renderQuad(encoder, UI_VIEW, quadProgram, 0, 0, canvas.getWidth(), canvas.getHeight(),
+        renderQuad(encoder, UI_VIEW, quadProgram, 0, 0, packet.getCanvasWidth(), packet.getCanvasHeight(),
                 0xFFFFFF, 255);
     }
 
-    private void updateFullscreenTexture() {
-        Canvas canvas = client.getCanvas();
-
-        BufferProvider bufferProvider = client.getBufferProvider();
-        int[] pixels = bufferProvider.getPixels();
-        fullscreenTextureBuf.clear();
-        fullscreenTextureBuf.put(pixels);
-        fullscreenTextureBuf.flip();
+    private void updateFullscreenTexture(FramePacket packet) {
+        int canvasWidth = packet.getCanvasWidth();
+        int canvasHeight = packet.getCanvasHeight();
 
-        if (fullscreenTextureId == -1 || !canvas.getSize().equals(lastCanvasSize)) {
+        if (fullscreenTextureId == -1 || lastCanvasWidth != canvasWidth || lastCanvasHeight != canvasHeight) {
             if (fullscreenTextureId != -1) {
                 bgfx_destroy_texture(fullscreenTextureId);
             }
-            fullscreenTextureId = bgfx_create_texture_2d(canvas.getWidth(), canvas.getHeight(), false, 1,
+            fullscreenTextureId = bgfx_create_texture_2d(canvasWidth, canvasHeight, false, 1,
                     BGFX_TEXTURE_FORMAT_BGRA8, BGFX_TEXTURE_NONE, null);
-            lastCanvasSize = canvas.getSize();
+            lastCanvasWidth = canvasWidth;
+            lastCanvasHeight = canvasHeight;
+        }
+
+        // The texture keeps the last frame, so only the rectangles the client changed are uploaded
+        IntBuffer pixelsBuf = packet.getPixelsBuf();
+        int[] rects = packet.getPixelRects();
+        int offset = 0;
+        uploadedRects = packet.getPixelRectCount();
+        uploadedPixels = 0;
+        for (int i = 0; i < uploadedRects; i++) {
+            int x = rects[i * DirtyRectTracker.RECT_SIZE];
+            int y = rects[i * DirtyRectTracker.RECT_SIZE + 1];
+            int rectWidth = rects[i * DirtyRectTracker.RECT_SIZE + 2];
+            int rectHeight = rects[i * DirtyRectTracker.RECT_SIZE + 3];
+            int size = rectWidth * rectHeight;
+            bgfx_update_texture_2d(fullscreenTextureId, 0, 0, x, y, rectWidth, rectHeight,
+                    bgfx_make_ref(MemoryUtil.memSlice(pixelsBuf, offset, size)), 0xFFFF);
+            offset += size;
+            uploadedPixels += size;
         }
-        bgfx_update_texture_2d(fullscreenTextureId, 0, 0, 0, 0,
-                canvas.getWidth(), canvas.getHeight(), bgfx_make_ref(fullscreenTextureBuf), 0xFFFF);
     }
 
     @Override
     public void onFrameStart() {
-        sync();
-        sync();
+        if (!options.isPipelined()) {
+            sync();
+            sync();
+            return;
+        }
+        FramePipeline pipeline = this.pipeline;
+        if (pipeline != null && recordingPacket == null) {
+            FramePacket packet = pipeline.acquire();
+            if (packet != null) {
+                beginRecording(packet);
+                recordingPacket = packet;
+            }
+        }
+    }
+
+    private void beginRecording(FramePacket packet) {
+        if (spriteAtlas != null) {
+            spriteAtlas.beginFrame();
+        }
+        if (indexedSpriteCache != null) {
+            indexedSpriteCache.beginFrame(packet);
+        }
     }
 
     @Override
     public void onFrameEnd() {
-        sync();
-        sync();
+        if (!options.isPipelined()) {
+            sync();
+            sync();
+            return;
+        }
+        FramePacket packet = recordingPacket;
+        if (packet != null) {
+            recordingPacket = null;
+            capture(packet);
+            pipeline.publish(packet);
+        }
     }
 
     public boolean isBufferProviderPixels() {
@@ -732,14 +1309,15 @@ public class Renderer implements Callbacks {
 
     @Override
     public boolean fillRectangle(int x, int y, int width, int height, int rgb, int alpha) {
-        if (!isBufferProviderPixels()) {
+        FramePacket packet = recordingPacket;
+        if (packet == null || !isBufferProviderPixels()) {
             return false;
         }
         if (width == 0 || height == 0 || alpha == 0) {
             return true;
         }
         alpha = Math.min(alpha, 255);
-        renderCommands.add(new RenderRectangleCommand(x, y, width, height, rgb, alpha, getScissorX(), getScissorY(),
+        packet.getRenderCommands().add(new RenderRectangleCommand(x, y, width, height, rgb, alpha, getScissorX(), getScissorY(),
                 getScissorWidth(), getScissorHeight()));
         return true;
     }
@@ -771,6 +1349,9 @@ public class Renderer implements Callbacks {
 
     @Override
     public boolean drawSprite(IndexedSprite sprite, int x, int y, int width, int height) {
+        if (indexedSpriteCache != null) {
+            return drawSprite(sprite, null, x, y, width, height, 255);
+        }
         byte[] palettePixels = sprite.getPixels();
         int[] palette = sprite.getPalette();
 
@@ -811,7 +1392,8 @@ public class Renderer implements Callbacks {
     }
 
     private boolean drawSprite(AbstractSprite sprite, int[] pixels, int x, int y, int width, int height, int alpha) {
-        if (!isBufferProviderPixels()) {
+        FramePacket packet = recordingPacket;
+        if (packet == null || !isBufferProviderPixels()) {
             return false;
         }
         if (width == 0 || height == 0 || alpha == 0) {
@@ -853,15 +1435,83 @@ public class Renderer implements Callbacks {
 
         alpha = Math.min(alpha, 255);
 
+        // Without pixels the sprite is indexed, and its palette is resolved by the quad shader
+        if (pixels == null) {
+            IndexedSpriteEntry entry = indexedSpriteCache.get((IndexedSprite) sprite, packet);
+            packet.getRenderCommands().add(new RenderIndexedSpriteCommand(entry, x, y, width, height,
+                    getScissorX(), getScissorY(), getScissorWidth(), getScissorHeight()));
+            return true;
+        }
+
+        if (spriteAtlas != null) {
+            SpriteAtlasEntry entry = spriteAtlas.get(sprite, pixels, spriteWidth, spriteHeight, packet);
+            if (entry != null) {
+                packet.getRenderCommands().add(new RenderAtlasSpriteCommand(entry, x, y, width, height, alpha,
+                        getScissorX(), getScissorY(), getScissorWidth(), getScissorHeight()));
+                return true;
+            }
+        }
+
         IntBuffer pixelsBuf = MemoryUtil.memAllocInt(pixels.length);
         pixelsBuf.put(pixels);
         pixelsBuf.flip();
 
-        renderCommands.add(new RenderSpriteCommand(pixelsBuf, spriteWidth, spriteHeight, x, y, width, height, alpha,
+        packet.getRenderCommands().add(new RenderSpriteCommand(pixelsBuf, spriteWidth, spriteHeight, x, y, width, height, alpha,
                 getScissorX(), getScissorY(), getScissorWidth(), getScissorHeight()));
         return true;
     }
 
+    @Override
+    public void beginText(AbstractFont font, String text, int x, int y) {
+        FramePacket packet = recordingPacket;
+        if (!options.isTextRuns() || packet == null) {
+            return;
+        }
+        textFont = font;
+        textRun = null;
+        textRunCount = 0;
+        textString = text;
+        textX = x;
+        textY = y;
+        if (textRunCache != null && text != null) {
+            cachedTextRun = textRunCache.get(font, text, x, y);
+            cachedTextGlyphs = 0;
+            cachedTextIndex = packet.getRenderCommands().size();
+        }
+    }
+
+    @Override
+    public void endText() {
+        FramePacket packet = recordingPacket;
+        if (packet != null && cachedTextRun != null) {
+            if (cachedTextGlyphs == cachedTextRun.getGlyphCount()
+                    && packet.getRenderCommands().size() == cachedTextIndex) {
+                packet.getRenderCommands().add(cachedTextRun);
+                textRunCache.countHit();
+            } else {
+                replaceCachedTextRun(packet.getRenderCommands());
+            }
+        }
+        // Only strings drawn as one uninterrupted run are worth keeping
+        if (packet != null && textRunCache != null && textString != null && textRunCount == 1) {
+            textRunCache.put(textFont, textString, textX, textY, textRun);
+        }
+        textFont = null;
+        textRun = null;
+        textString = null;
+        cachedTextRun = null;
+    }
+
+    private void replaceCachedTextRun(List<RenderCommand> commands) {
+        // The glyphs that matched so far are drawn as a run of their own, in the place the string started
+        if (cachedTextGlyphs > 0) {
+            textRun = cachedTextRun.copy(cachedTextGlyphs);
+            commands.add(cachedTextIndex, textRun);
+            textRunCount++;
+        }
+        cachedTextRun = null;
+    }
+
     @Override
     public boolean drawGlyph(AbstractFont font, byte[] glyph, int x, int y, int width, int height, int rgb) {
         return drawGlyph(font, glyph, x, y, width, height, rgb, 255);
@@ -869,220 +1519,213 @@ public class Renderer implements Callbacks {
 
     @Override
     public boolean drawGlyph(AbstractFont font, byte[] glyph, int x, int y, int width, int height, int rgb, int alpha) {
-        if (!isBufferProviderPixels()) {
+        FramePacket packet = recordingPacket;
+        if (packet == null || !isBufferProviderPixels()) {
             return false;
         }
         if (width == 0 || height == 0 || alpha == 0) {
             return true;
         }
-        int glyphId = font.getGlyphIdMap().get(glyph);
-        renderCommands.add(new RenderGlyphCommand(font, glyphId, x, y, width, height, rgb, alpha,
+        int glyphId = font.getGlyphIdTable().get(glyph);
+        List<RenderCommand> commands = packet.getRenderCommands();
+        if (font == textFont) {
+            // While the string repeats the cached run glyph for glyph, nothing is recorded until it ends
+            if (cachedTextRun != null) {
+                if (commands.size() == cachedTextIndex
+                        && cachedTextRun.matches(font, getScissorX(), getScissorY(), getScissorWidth(),
+                        getScissorHeight())
+                        && cachedTextRun.isGlyph(cachedTextGlyphs, glyphId, x, y, width, height, rgb, alpha)) {
+                    cachedTextGlyphs++;
+                    return true;
+                }
+                replaceCachedTextRun(commands);
+            }
+            // A run only keeps growing while it is the last command, so anything drawn in between keeps its place
+            RenderTextRunCommand run = textRun;
+            if (run == null || commands.isEmpty() || commands.get(commands.size() - 1) != run
+                    || !run.matches(font, getScissorX(), getScissorY(), getScissorWidth(), getScissorHeight())) {
+                run = new RenderTextRunCommand(font, getScissorX(), getScissorY(), getScissorWidth(),
+                        getScissorHeight());
+                commands.add(run);
+                textRun = run;
+                textRunCount++;
+            }
+            run.addGlyph(glyphId, x, y, width, height, rgb, alpha);
+            return true;
+        }
+        commands.add(new RenderGlyphCommand(font, glyphId, x, y, width, height, rgb, alpha,
                 getScissorX(), getScissorY(), getScissorWidth(), getScissorHeight()));
         return true;
     }
 
     @Override
     public boolean drawScene(Scene scene, int cameraX, int cameraY, int cameraZ, int pitch, int yaw, int maxLevel) {
-        renderCommands.add(new RenderSceneCommand());
-        return false;
-    }
-
-    private ByteBuffer ensureVertexBufferCapacity(int vertexCount) {
-        ByteBuffer vertexBuf = vertexBuffers[frame % 2];
-        if (vertexBuf.remaining() < vertexCount * sceneLayout.stride()) {
-            vertexBuf.flip();
-            ByteBuffer newBuffer = MemoryUtil.memAlloc(vertexBuf.capacity() * 2);
-            newBuffer.put(vertexBuf);
-            buffersToRemove.add(vertexBuf);
-            vertexBuf = vertexBuffers[frame % 2] = newBuffer;
+        FramePacket packet = recordingPacket;
+        if (packet == null) {
+            return false;
+        }
+        if (modelCache != null || terrainCache != null || gpuPalette) {
+            int[] colorPalette = client.getColorPalette();
+            int paletteStamp = Arrays.hashCode(colorPalette);
+            if (gpuPalette) {
+                // Changes when the brightness setting rebuilds the palette
+                if (!paletteCaptured || paletteStamp != capturedPaletteStamp) {
+                    packet.capturePalette(colorPalette);
+                    paletteCaptured = true;
+                    capturedPaletteStamp = paletteStamp;
+                }
+                // Vertices only hold palette indices, so a new palette doesn't invalidate cached geometry
+                paletteStamp = 0;
+            }
+            if (modelCache != null) {
+                modelCache.beginFrame(paletteStamp, packet);
+            }
+            if (terrainCache != null) {
+                terrainCache.beginFrame(scene, paletteStamp, client.getCameraX(), client.getCameraY(),
+                        client.getCameraZ(), packet);
+            }
+        }
+        Widget viewportWidget = client.getViewportWidget();
+        cullingActive = frustumCuller != null && viewportWidget != null;
+        pickingActive = modelPicker != null && viewportWidget != null;
+        packet.setGpuModels(pickingActive && options.isGpuModels()
+                && (modelDrawBenchmark == null || modelDrawBenchmark.nextFrameUsesGpu()));
+        if (viewportWidget != null) {
+            int viewportWidth = viewportWidget.getWidth();
+            int viewportHeight = viewportWidget.getHeight();
+            setFrustumMatrix(sceneMatrix, 0, 0, viewportWidth / 2, viewportHeight / 2, viewportWidth,
+                    viewportHeight, client.getCameraPitch(), client.getCameraYaw(), client.getCameraZoom());
+        }
+        if (cullingActive) {
+            frustumCuller.beginFrame(sceneMatrix);
+        }
+        if (pickingActive) {
+            Canvas canvas = client.getCanvas();
+            modelPicker.beginFrame(sceneMatrix, viewportWidget.getWidth(), viewportWidget.getHeight(),
+                    lastMouseX - canvas.getX() - client.getViewportX(),
+                    lastMouseY - canvas.getY() - client.getViewportY());
         }
-        return vertexBuf;
+        if (viewportWidget != null) {
+            packet.getRenderCommands().add(new RenderSceneCommand(client.getViewportX(), client.getViewportY(),
+                    viewportWidget.getWidth(), viewportWidget.getHeight()));
+        }
+        return false;
     }
 
     @Override
-    public boolean drawModel(Model model, int rotation, int x, int y, int z) {
-        int[] verticesX = model.getVerticesX();
-        int[] verticesY = model.getVerticesY();
-        int[] verticesZ = model.getVerticesZ();
-
-        int[] indicesA = model.getIndicesA();
-        int[] indicesB = model.getIndicesB();
-        int[] indicesC = model.getIndicesC();
-
-        int[] colorsA = model.getColorsA();
-        int[] colorsB = model.getColorsB();
-        int[] colorsC = model.getColorsC();
-
-        short[] triangleTextures = model.getTriangleTextures();
-
-        byte[] triangleAlphas = model.getTriangleAlphas();
-
-        int[] colorPalette = client.getColorPalette();
-
-        ByteBuffer vertex = ensureVertexBufferCapacity(model.getTriangleCount() * 3);
+    public boolean drawModel(Model model, int rotation, int x, int y, int z, long hash) {
+        FramePacket packet = recordingPacket;
+        if (packet == null) {
+            return false;
+        }
 
-        int vertexStart = vertexCount;
+        // Shared animation models are posed again before each draw, so their bounds and stamp are taken per draw
+        boolean stamped = modelCache != null || options.isModelInstancing();
+        if (cullingActive || pickingActive || stamped) {
+            modelBounds.set(model);
+        }
 
-        float[][][] texCoords = computeTexCoords(model);
+        if (cullingActive && !frustumCuller.isModelVisible(modelBounds, x, y, z)) {
+            return packet.isGpuModels();
+        }
 
-        float[][] us = texCoords[0];
-        float[][] vs = texCoords[1];
+        // Models under the cursor still go through the client's draw, which adds them to its mouse-over list
+        boolean underMouse = pickingActive && modelPicker.addModel(modelBounds, x, y, z, hash);
+        boolean skipSoftware = packet.isGpuModels() && !underMouse;
+
+        if (transparentSorter != null && ModelVertexJob.hasTransparentTriangles(model)) {
+            // Its transparent triangles are sorted against every other model's, so it can't be cached or instanced
+            ModelVertexJob job = packet.obtainModelJob();
+            job.set(model, getVertexPalette(), true);
+            job.setSplitTransparent(true);
+            addVertexJob(packet, job, true);
+            packet.addTransparentModelCommand(packet.addModelCommand().set(rotation, x, y, z, job));
+            return skipSoftware;
+        }
 
-        for (int i = 0; i < model.getTriangleCount(); i++) {
-            int colorA = colorsA[i];
-            int colorB = colorsB[i];
-            int colorC = colorsC[i];
-            int textureId = 0;
-            if (triangleTextures != null) {
-                textureId = triangleTextures[i] + 1;
-            }
-            int alpha = 0xFF;
-            if (triangleAlphas != null && textureId == 0) {
-                alpha -= triangleAlphas[i];
+        long stamp = stamped ? modelBounds.getStamp() : 0L;
+        if (options.isModelInstancing()) {
+            // Repeats of an unchanged model reuse the first draw's vertices and become instances of it
+            ModelInstances instances = packet.getModelInstances(model, stamp);
+            if (instances != null) {
+                instances.add(rotation, x, y, z);
+                return skipSoftware;
             }
-            if (colorC == -1) {
-                colorC = colorB = colorA;
-            } else if (colorC == -2) {
-                continue;
-            }
-
-            float[] u = us[i];
-            float[] v = vs[i];
-
-            addSceneVertex(vertex,
-                    verticesX[indicesA[i]],
-                    verticesY[indicesA[i]],
-                    verticesZ[indicesA[i]],
-                    colorPalette[colorA],
-                    alpha,
-                    u[0],
-                    v[0],
-                    textureId);
-            addSceneVertex(vertex,
-                    verticesX[indicesB[i]],
-                    verticesY[indicesB[i]],
-                    verticesZ[indicesB[i]],
-                    colorPalette[colorB],
-                    alpha,
-                    u[1],
-                    v[1],
-                    textureId);
-            addSceneVertex(vertex,
-                    verticesX[indicesC[i]],
-                    verticesY[indicesC[i]],
-                    verticesZ[indicesC[i]],
-                    colorPalette[colorC],
-                    alpha,
-                    u[2],
-                    v[2],
-                    textureId);
-
-            vertexCount += 3;
-        }
-        renderModelCommands.add(new RenderModelCommand(rotation, x, y, z, vertexStart,
-                vertexCount - vertexStart));
-        return false;
-    }
+        }
 
-    private float[][][] computeTexCoords(Model model) {
-        int triangleCount = model.getTriangleCount();
+        ModelCacheEntry cacheEntry = null;
+        if (modelCache != null) {
+            cacheEntry = modelCache.get(model, stamp, packet);
+        }
+        RenderModelCommand command;
+        if (cacheEntry != null) {
+            command = packet.addModelCommand().set(rotation, x, y, z, cacheEntry);
+        } else {
+            command = packet.addModelCommand().set(rotation, x, y, z, addModelJob(packet, model));
+        }
 
-        int[] verticesX = model.getVerticesX();
-        int[] verticesY = model.getVerticesY();
-        int[] verticesZ = model.getVerticesZ();
+        if (options.isModelInstancing()) {
+            ModelInstances instances = packet.obtainModelInstances(model, stamp);
+            instances.add(rotation, x, y, z);
+            command.setInstances(instances);
+        }
+        return skipSoftware;
+    }
 
-        int[] indicesA = model.getIndicesA();
-        int[] indicesB = model.getIndicesB();
-        int[] indicesC = model.getIndicesC();
+    private VertexJob addModelJob(FramePacket packet, Model model) {
+        ModelVertexJob job = packet.obtainModelJob();
+        job.set(model, getVertexPalette(), options.isParallelPacking());
 
-        int[] texIndicesP = model.getTextureIndicesP();
-        int[] texIndicesM = model.getTextureIndicesM();
-        int[] texIndicesN = model.getTextureIndicesN();
+        ModelCacheEntry uploadEntry = null;
+        if (modelCache != null) {
+            uploadEntry = modelCache.admit(model, packet);
+        }
 
-        short[] triangleTextures = model.getTriangleTextures();
-        byte[] textureMapping = model.getTextureMapping();
+        // Cache uploads copy the job's vertices as drawn, so they must not be deduplicated
+        int vertexStart = addVertexJob(packet, job, uploadEntry == null);
+        if (uploadEntry != null) {
+            uploadEntry.setUploadVertexStart(vertexStart);
+        }
+        return job;
+    }
 
-        float[][] texCoordUs = new float[triangleCount][3];
-        float[][] texCoordVs = new float[triangleCount][3];
-        for (int i = 0; i < triangleCount; i++) {
-            int textureId = -1;
-            if (triangleTextures != null) {
-                textureId = triangleTextures[i];
-            }
-            int mapping = -1;
-            if (textureMapping != null) {
-                mapping = textureMapping[i];
-            }
-            if (textureId == -1) {
-                continue;
-            }
-            float[] u = texCoordUs[i];
-            float[] v = texCoordVs[i];
-            if (mapping == -1) {
-                u[0] = 0.0f;
-                v[0] = 1.0f;
+    private int addVertexJob(FramePacket packet, VertexJob job, boolean indexable) {
+        int vertexCount = job.getVertexCount();
+        int vertexStart = packet.reserveVertices(vertexCount);
+        job.setVertexStart(vertexStart);
+        job.setPackedVertexStart(vertexStart);
 
-                u[1] = 1.0f;
-                v[1] = 1.0f;
+        boolean indexed = indexable && options.isIndexedGeometry();
+        if (indexed) {
+            boolean wideIndices = VertexDeduplicator.isWideIndices(vertexCount);
+            job.setIndexRange(packet.reserveIndices(vertexCount, wideIndices), wideIndices);
+        } else {
+            job.setIndexRange(-1, false);
+        }
 
-                u[2] = 0.0f;
-                v[2] = 0.0f;
-            } else {
-                mapping &= 0xFF;
-                int a = indicesA[i];
-                int b = indicesB[i];
-                int c = indicesC[i];
-                int p = texIndicesP[mapping];
-                int m = texIndicesM[mapping];
-                int n = texIndicesN[mapping];
-                float originX = verticesX[p];
-                float originY = verticesY[p];
-                float originZ = verticesZ[p];
-                float mxDistance = verticesX[m] - originX;
-                float myDistance = verticesY[m] - originY;
-                float mzDistance = verticesZ[m] - originZ;
-                float nxDistance = verticesX[n] - originX;
-                float nyDistance = verticesY[n] - originY;
-                float nzDistance = verticesZ[n] - originZ;
-                float axDistance = verticesX[a] - originX;
-                float ayDistance = verticesY[a] - originY;
-                float azDistance = verticesZ[a] - originZ;
-                float bxDistance = verticesX[b] - originX;
-                float byDistance = verticesY[b] - originY;
-                float bzDistance = verticesZ[b] - originZ;
-                float cxDistance = verticesX[c] - originX;
-                float cyDistance = verticesY[c] - originY;
-                float czDistance = verticesZ[c] - originZ;
-                float f_797_ = myDistance * nzDistance - mzDistance * nyDistance;
-                float f_798_ = mzDistance * nxDistance - mxDistance * nzDistance;
-                float f_799_ = mxDistance * nyDistance - myDistance * nxDistance;
-                float f_800_ = nyDistance * f_799_ - nzDistance * f_798_;
-                float f_801_ = nzDistance * f_797_ - nxDistance * f_799_;
-                float f_802_ = nxDistance * f_798_ - nyDistance * f_797_;
-                float f_803_ = 1.0f / (f_800_ * mxDistance + f_801_ * myDistance + f_802_ * mzDistance);
-                u[0] = (f_800_ * axDistance + f_801_ * ayDistance + f_802_ * azDistance) * f_803_;
-                u[1] = (f_800_ * bxDistance + f_801_ * byDistance + f_802_ * bzDistance) * f_803_;
-                u[2] = (f_800_ * cxDistance + f_801_ * cyDistance + f_802_ * czDistance) * f_803_;
-                f_800_ = myDistance * f_799_ - mzDistance * f_798_;
-                f_801_ = mzDistance * f_797_ - mxDistance * f_799_;
-                f_802_ = mxDistance * f_798_ - myDistance * f_797_;
-                f_803_ = 1.0f / (f_800_ * nxDistance + f_801_ * nyDistance + f_802_ * nzDistance);
-                v[0] = (f_800_ * axDistance + f_801_ * ayDistance + f_802_ * azDistance) * f_803_;
-                v[1] = (f_800_ * bxDistance + f_801_ * byDistance + f_802_ * bzDistance) * f_803_;
-                v[2] = (f_800_ * cxDistance + f_801_ * cyDistance + f_802_ * czDistance) * f_803_;
+        if (vertexPacker != null) {
+            packet.getVertexJobs().add(job);
+        } else {
+            job.pack(packet);
+            if (options.isIndexedGeometry()) {
+                packet.getVertexJobs().add(job);
             }
         }
-        return new float[][][] {texCoordUs, texCoordVs};
+        return vertexStart;
     }
 
     @Override
     public boolean drawModelTriangle(Model model, int index) {
-        return isBufferProviderPixels();
+        return recordingPacket != null && isBufferProviderPixels();
     }
 
     @Override
     public boolean drawTile(Scene scene, SceneTilePaint tile, int level, int x, int y) {
-        int[] colorPalette = client.getColorPalette();
+        FramePacket packet = recordingPacket;
+        if (packet == null) {
+            return false;
+        }
+
         int[][][] tileHeights = scene.getTileHeights();
 
         int swHeight = tileHeights[level][x][y];
@@ -1099,116 +1742,99 @@ public class Renderer implements Callbacks {
             return false;
         }
 
-        int neRgb = colorPalette[neColor];
-        int nwRgb = colorPalette[nwColor];
-        int seRgb = colorPalette[seColor];
-        int swRgb = colorPalette[swColor];
-
-        ByteBuffer vertex = ensureVertexBufferCapacity(6);
-
         int localX = x * LOCAL_TILE_SIZE;
         int localY = y * LOCAL_TILE_SIZE;
+        int cameraX = client.getCameraX();
+        int cameraY = client.getCameraY();
+        int cameraZ = client.getCameraZ();
 
-        int vertexStart = vertexCount;
-
-        int vertexSwX = 0;
-        int vertexSwY = 0;
-
-        int vertexNwX = 0;
-        int vertexNwY = LOCAL_TILE_SIZE;
+        // In GPU scene mode terrain is culled by chunk once the client has walked the scene
+        if (cullingActive && !gpuScene && !frustumCuller.isTilePaintVisible(localX, localY, cameraX, cameraY,
+                cameraZ, swHeight, seHeight, neHeight, nwHeight)) {
+            return false;
+        }
 
-        int vertexNeX = LOCAL_TILE_SIZE;
-        int vertexNeY = LOCAL_TILE_SIZE;
+        int minHeight = Math.min(Math.min(swHeight, seHeight), Math.min(neHeight, nwHeight));
+        int maxHeight = Math.max(Math.max(swHeight, seHeight), Math.max(neHeight, nwHeight));
+        // Tiles under the cursor still go through the client's draw, which selects the tile to walk to
+        boolean skipSoftware = gpuScene && !(pickingActive && modelPicker.mayContainMouse(localX - cameraX,
+                minHeight - cameraZ, localY - cameraY, localX + LOCAL_TILE_SIZE - cameraX, maxHeight - cameraZ,
+                localY + LOCAL_TILE_SIZE - cameraY));
 
-        int vertexSeX = LOCAL_TILE_SIZE;
-        int vertexSeY = 0;
+        int[] colorPalette = getVertexPalette();
+        int neVertexColor = SceneVertexFormat.packColor(colorPalette, neColor, 0xFF);
+        int nwVertexColor = SceneVertexFormat.packColor(colorPalette, nwColor, 0xFF);
+        int seVertexColor = SceneVertexFormat.packColor(colorPalette, seColor, 0xFF);
+        int swVertexColor = SceneVertexFormat.packColor(colorPalette, swColor, 0xFF);
 
         int textureId = tile.getTextureId() + 1;
 
-        addSceneVertex(vertex, vertexSeX, seHeight, vertexSeY, seRgb, 0xFF, 1.0f, 0.0f, textureId);
-        addSceneVertex(vertex, vertexNwX, nwHeight, vertexNwY, nwRgb, 0xFF, 0.0f, 1.0f, textureId);
-        addSceneVertex(vertex, vertexSwX, swHeight, vertexSwY, swRgb, 0xFF, 0.0f, 0.0f, textureId);
-
-        addSceneVertex(vertex, vertexSeX, seHeight, vertexSeY, seRgb, 0xFF, 1.0f, 0.0f, textureId);
-        addSceneVertex(vertex, vertexNeX, neHeight, vertexNeY, neRgb, 0xFF, 1.0f, 1.0f, textureId);
-        addSceneVertex(vertex, vertexNwX, nwHeight, vertexNwY, nwRgb, 0xFF, 0.0f, 1.0f, textureId);
+        if (terrainCache != null) {
+            long stamp = (long) swHeight << 48 ^ (long) seHeight << 32 ^ (long) neHeight << 16 ^ nwHeight;
+            int status = terrainCache.drawTilePaint(level, x, y, tile, stamp);
+            if (status == TerrainCache.BAKED) {
+                return skipSoftware;
+            }
+            if (status == TerrainCache.CHANGED) {
+                TilePaintVertexJob chunkJob = new TilePaintVertexJob();
+                chunkJob.set(swHeight, seHeight, neHeight, nwHeight, swVertexColor, seVertexColor, neVertexColor,
+                        nwVertexColor, textureId, TerrainCache.getChunkOffset(x), TerrainCache.getChunkOffset(y));
+                terrainCache.updateTilePaint(level, x, y, tile, stamp, minHeight, maxHeight, chunkJob);
+            }
+        }
 
-        vertexCount += 6;
+        TilePaintVertexJob job = packet.obtainTilePaintJob();
+        job.set(swHeight, seHeight, neHeight, nwHeight, swVertexColor, seVertexColor, neVertexColor,
+                nwVertexColor, textureId);
+        addVertexJob(packet, job, true);
 
-        renderModelCommands.add(new RenderModelCommand(0, localX - client.getCameraX(),
-                -client.getCameraZ(), localY - client.getCameraY(), vertexStart,
-                vertexCount - vertexStart));
-        return false;
+        packet.addModelCommand().set(0, localX - cameraX, -cameraZ, localY - cameraY, job);
+        return skipSoftware;
     }
 
     @Override
     public boolean drawTile(Scene scene, SceneTileModel tile, int x, int y) {
-        int[] colorPalette = client.getColorPalette();
-
-        int[] verticesX = tile.getVerticesX();
-        int[] verticesY = tile.getVerticesY();
-        int[] verticesZ = tile.getVerticesZ();
-
-        int[] colorsA = tile.getColorsA();
-        int[] colorsB = tile.getColorsB();
-        int[] colorsC = tile.getColorsC();
-
-        int[] indicesA = tile.getIndicesA();
-        int[] indicesB = tile.getIndicesB();
-        int[] indicesC = tile.getIndicesC();
-
-        int[] textureIds = tile.getTextureIds();
+        FramePacket packet = recordingPacket;
+        if (packet == null) {
+            return false;
+        }
 
-        int triangleCount = indicesA.length;
+        int cameraX = client.getCameraX();
+        int cameraY = client.getCameraY();
+        int cameraZ = client.getCameraZ();
+        if (cullingActive && !gpuScene && !frustumCuller.isTileModelVisible(tile, cameraX, cameraY, cameraZ)) {
+            return false;
+        }
 
         int localX = x * LOCAL_TILE_SIZE;
         int localY = y * LOCAL_TILE_SIZE;
+        boolean skipSoftware = gpuScene && !(pickingActive && modelPicker.mayContainMouse(tile, cameraX, cameraY,
+                cameraZ));
 
-        ByteBuffer vertex = ensureVertexBufferCapacity(triangleCount * 3);
-
-        int vertexStart = vertexCount;
-
-        for (int i = 0; i < triangleCount; i++) {
-            int a = indicesA[i];
-            int b = indicesB[i];
-            int c = indicesC[i];
-
-            int colorA = colorsA[i];
-            int colorB = colorsB[i];
-            int colorC = colorsC[i];
-
-            if (colorA == INVALID_TILE_COLOR) {
-                continue;
+        if (terrainCache != null) {
+            int status = terrainCache.drawTileModel(x, y, tile);
+            if (status == TerrainCache.BAKED) {
+                return skipSoftware;
             }
-
-            int vertexXA = verticesX[a] - localX;
-            int vertexZA = verticesZ[a] - localY;
-
-            int vertexXB = verticesX[b] - localX;
-            int vertexZB = verticesZ[b] - localY;
-
-            int vertexXC = verticesX[c] - localX;
-            int vertexZC = verticesZ[c] - localY;
-
-            int textureId = 0;
-            if (textureIds != null) {
-                textureId = textureIds[i] + 1;
+            if (status == TerrainCache.CHANGED) {
+                TileModelVertexJob chunkJob = new TileModelVertexJob();
+                chunkJob.set(tile, getVertexPalette(), localX, localY,
+                        localX - TerrainCache.getChunkOffset(x), localY - TerrainCache.getChunkOffset(y));
+                terrainCache.updateTileModel(x, y, tile, chunkJob);
             }
+        }
 
-            addSceneVertex(vertex, vertexXA, verticesY[a], vertexZA, colorPalette[colorA], 0xFF,
-                    (float) vertexXA / LOCAL_TILE_SIZE, (float) vertexZA / LOCAL_TILE_SIZE, textureId);
-            addSceneVertex(vertex, vertexXB, verticesY[b], vertexZB, colorPalette[colorB], 0xFF,
-                    (float) vertexXB / LOCAL_TILE_SIZE, (float) vertexZB / LOCAL_TILE_SIZE, textureId);
-            addSceneVertex(vertex, vertexXC, verticesY[c], vertexZC, colorPalette[colorC], 0xFF,
-                    (float) vertexXC / LOCAL_TILE_SIZE, (float) vertexZC / LOCAL_TILE_SIZE, textureId);
+        TileModelVertexJob job = packet.obtainTileModelJob();
+        job.set(tile, getVertexPalette(), localX, localY);
+        addVertexJob(packet, job, true);
 
-            vertexCount += 3;
-        }
+        packet.addModelCommand().set(0, localX - cameraX, -cameraZ, localY - cameraY, job);
+        return skipSoftware;
+    }
 
-        renderModelCommands.add(new RenderModelCommand(0, localX - client.getCameraX(),
-                -client.getCameraZ(), localY - client.getCameraY(), vertexStart,
-                vertexCount - vertexStart));
-        return false;
+    private int[] getVertexPalette() {
+        // A null palette makes jobs write the raw HSL index for the shader to look up
+        return gpuPalette ? null : client.getColorPalette();
     }
 
     private void sync() {
@@ -1271,47 +1897,7 @@ public class Renderer implements Callbacks {
 
             if (bgfx_alloc_transient_buffers(tvb, layout, 4, tib, 6)) {
                 ByteBuffer vertex = tvb.data();
-
-                float z = 0.0f;
-
-                float minX = x;
-                float minY = y;
-                float maxX = x + width;
-                float maxY = y + height;
-
-                int r = rgb >> 16 & 0xFF;
-                int g = rgb >> 8 & 0xFF;
-                int b = rgb & 0xFF;
-
-                int abgr = alpha << 24 | b << 16 | g << 8 | r;
-
-                vertex.putFloat(minX);
-                vertex.putFloat(minY);
-                vertex.putFloat(z);
-                vertex.putInt(abgr);
-                vertex.putFloat(minU);
-                vertex.putFloat(minV);
-
-                vertex.putFloat(maxX);
-                vertex.putFloat(minY);
-                vertex.putFloat(z);
-                vertex.putInt(abgr);
-                vertex.putFloat(maxU);
-                vertex.putFloat(minV);
-
-                vertex.putFloat(maxX);
-                vertex.putFloat(maxY);
-                vertex.putFloat(z);
-                vertex.putInt(abgr);
-                vertex.putFloat(maxU);
-                vertex.putFloat(maxV);
-
-                vertex.putFloat(minX);
-                vertex.putFloat(maxY);
-                vertex.putFloat(z);
-                vertex.putInt(abgr);
-                vertex.putFloat(minU);
-                vertex.putFloat(maxV);
+                UiBatcher.putQuad(vertex, x, y, width, height, rgb, alpha, minU, minV, maxU, maxV);
                 vertex.flip();
 
                 ByteBuffer indices = tib.data();
@@ -1386,6 +1972,37 @@ public class Renderer implements Callbacks {
         return layout;
     }
 
+    private BGFXVertexLayout createCompactSceneLayout() {
+        BGFXVertexLayout layout = BGFXVertexLayout.calloc();
+
+        bgfx_vertex_layout_begin(layout, rendererType);
+
+        bgfx_vertex_layout_add(layout,
+                BGFX_ATTRIB_POSITION,
+                4,
+                BGFX_ATTRIB_TYPE_INT16,
+                false,
+                false);
+
+        bgfx_vertex_layout_add(layout,
+                BGFX_ATTRIB_COLOR0,
+                4,
+                BGFX_ATTRIB_TYPE_UINT8,
+                true,
+                false);
+
+        bgfx_vertex_layout_add(layout,
+                BGFX_ATTRIB_TEXCOORD0,
+                2,
+                BGFX_ATTRIB_TYPE_HALF,
+                false,
+                false);
+
+        bgfx_vertex_layout_end(layout);
+
+        return layout;
+    }
+
     private void setGlfwCallbacks() {
         // Keyboard
         glfwSetCharCallback(window, this::onCharInput);
@@ -1575,4 +2192,12 @@ public class Renderer implements Callbacks {
     public short getFrameBufferId() {
         return frameBufferId;
     }
+
+    public FramePipeline getFramePipeline() {
+        return pipeline;
+    }
+
+    public UiBatcher getUiBatcher() {
+        return uiBatcher;
+    }
 }
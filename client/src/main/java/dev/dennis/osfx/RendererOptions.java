@@ -0,0 +1,334 @@
+package dev.dennis.osfx;
+
+public class RendererOptions {
+    private static final String PROPERTY_PREFIX = "osfx.";
+
+    private boolean debugStats;
+
+    private boolean pipelined;
+
+    private int submitWorkerCount;
+
+    private boolean submitBenchmark;
+
+    private boolean parallelPacking;
+
+    private int packingThreadCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    private boolean modelCache;
+
+    private long modelCacheBytes = 256L << 20;
+
+    private long modelCacheUploadBytes = 8L << 20;
+
+    private boolean terrainChunks;
+
+    private boolean indexedGeometry;
+
+    private boolean compactVertices;
+
+    private boolean modelInstancing;
+
+    private boolean frustumCulling;
+
+    private boolean transparencySort;
+
+    private int vertexArenaPages = 12;
+
+    private boolean gpuPalette;
+
+    private boolean gpuModels;
+
+    private boolean gpuModelsBenchmark;
+
+    private boolean modelPicking;
+
+    private boolean gpuScene;
+
+    private boolean spriteAtlas;
+
+    private int spriteAtlasPages = 2;
+
+    private boolean uiBatching;
+
+    private boolean gpuIndexedSprites;
+
+    private boolean textRuns;
+
+    private boolean textCache;
+
+    private boolean uiRegionCache;
+
+    private boolean skipBlankRaster;
+
+    public static RendererOptions fromSystemProperties() {
+        RendererOptions options = new RendererOptions();
+        options.setDebugStats(Boolean.getBoolean(PROPERTY_PREFIX + "debugStats"));
+        options.setPipelined(Boolean.getBoolean(PROPERTY_PREFIX + "pipelined"));
+        options.setSubmitWorkerCount(Integer.getInteger(PROPERTY_PREFIX + "submitWorkers",
+                options.getSubmitWorkerCount()));
+        options.setSubmitBenchmark(Boolean.getBoolean(PROPERTY_PREFIX + "submitBenchmark"));
+        options.setParallelPacking(Boolean.getBoolean(PROPERTY_PREFIX + "parallelPacking"));
+        options.setPackingThreadCount(Integer.getInteger(PROPERTY_PREFIX + "packingThreads",
+                options.getPackingThreadCount()));
+        options.setModelCache(Boolean.getBoolean(PROPERTY_PREFIX + "modelCache"));
+        options.setModelCacheBytes(Long.getLong(PROPERTY_PREFIX + "modelCacheBytes", options.getModelCacheBytes()));
+        options.setModelCacheUploadBytes(Long.getLong(PROPERTY_PREFIX + "modelCacheUploadBytes",
+                options.getModelCacheUploadBytes()));
+        options.setTerrainChunks(Boolean.getBoolean(PROPERTY_PREFIX + "terrainChunks"));
+        options.setIndexedGeometry(Boolean.getBoolean(PROPERTY_PREFIX + "indexedGeometry"));
+        options.setCompactVertices(Boolean.getBoolean(PROPERTY_PREFIX + "compactVertices"));
+        options.setModelInstancing(Boolean.getBoolean(PROPERTY_PREFIX + "modelInstancing"));
+        options.setFrustumCulling(Boolean.getBoolean(PROPERTY_PREFIX + "frustumCulling"));
+        options.setTransparencySort(Boolean.getBoolean(PROPERTY_PREFIX + "transparencySort"));
+        options.setVertexArenaPages(Integer.getInteger(PROPERTY_PREFIX + "vertexArenaPages",
+                options.getVertexArenaPages()));
+        options.setGpuPalette(Boolean.getBoolean(PROPERTY_PREFIX + "gpuPalette"));
+        options.setGpuModels(Boolean.getBoolean(PROPERTY_PREFIX + "gpuModels"));
+        options.setGpuModelsBenchmark(Boolean.getBoolean(PROPERTY_PREFIX + "gpuModelsBenchmark"));
+        options.setModelPicking(Boolean.getBoolean(PROPERTY_PREFIX + "modelPicking"));
+        options.setGpuScene(Boolean.getBoolean(PROPERTY_PREFIX + "gpuScene"));
+        options.setSpriteAtlas(Boolean.getBoolean(PROPERTY_PREFIX + "spriteAtlas"));
+        options.setSpriteAtlasPages(Integer.getInteger(PROPERTY_PREFIX + "spriteAtlasPages",
+                options.getSpriteAtlasPages()));
+        options.setUiBatching(Boolean.getBoolean(PROPERTY_PREFIX + "uiBatching"));
+        options.setGpuIndexedSprites(Boolean.getBoolean(PROPERTY_PREFIX + "gpuIndexedSprites"));
+        options.setTextRuns(Boolean.getBoolean(PROPERTY_PREFIX + "textRuns"));
+        options.setTextCache(Boolean.getBoolean(PROPERTY_PREFIX + "textCache"));
+        options.setUiRegionCache(Boolean.getBoolean(PROPERTY_PREFIX + "uiRegionCache"));
+        options.setSkipBlankRaster(Boolean.getBoolean(PROPERTY_PREFIX + "skipBlankRaster"));
+        return options;
+    }
+
+    public boolean isDebugStats() {
+        return debugStats;
+    }
+
+    public void setDebugStats(boolean debugStats) {
+        this.debugStats = debugStats;
+    }
+
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
+    public int getSubmitWorkerCount() {
+        return submitWorkerCount;
+    }
+
+    public void setSubmitWorkerCount(int submitWorkerCount) {
+        this.submitWorkerCount = submitWorkerCount;
+    }
+
+    public boolean isSubmitBenchmark() {
+        return submitBenchmark;
+    }
+
+    public void setSubmitBenchmark(boolean submitBenchmark) {
+        this.submitBenchmark = submitBenchmark;
+    }
+
+    public boolean isParallelPacking() {
+        return parallelPacking;
+    }
+
+    public void setParallelPacking(boolean parallelPacking) {
+        this.parallelPacking = parallelPacking;
+    }
+
+    public int getPackingThreadCount() {
+        return packingThreadCount;
+    }
+
+    public void setPackingThreadCount(int packingThreadCount) {
+        this.packingThreadCount = packingThreadCount;
+    }
+
+    public boolean isModelCache() {
+        return modelCache;
+    }
+
+    public void setModelCache(boolean modelCache) {
+        this.modelCache = modelCache;
+    }
+
+    public long getModelCacheBytes() {
+        return modelCacheBytes;
+    }
+
+    public void setModelCacheBytes(long modelCacheBytes) {
+        this.modelCacheBytes = modelCacheBytes;
+    }
+
+    public long getModelCacheUploadBytes() {
+        return modelCacheUploadBytes;
+    }
+
+    public void setModelCacheUploadBytes(long modelCacheUploadBytes) {
+        this.modelCacheUploadBytes = modelCacheUploadBytes;
+    }
+
+    public boolean isTerrainChunks() {
+        return terrainChunks;
+    }
+
+    public void setTerrainChunks(boolean terrainChunks) {
+        this.terrainChunks = terrainChunks;
+    }
+
+    public boolean isIndexedGeometry() {
+        return indexedGeometry;
+    }
+
+    public void setIndexedGeometry(boolean indexedGeometry) {
+        this.indexedGeometry = indexedGeometry;
+    }
+
+    public boolean isCompactVertices() {
+        return compactVertices;
+    }
+
+    public void setCompactVertices(boolean compactVertices) {
+        this.compactVertices = compactVertices;
+    }
+
+    public boolean isModelInstancing() {
+        return modelInstancing;
+    }
+
+    public void setModelInstancing(boolean modelInstancing) {
+        this.modelInstancing = modelInstancing;
+    }
+
+    public boolean isFrustumCulling() {
+        return frustumCulling;
+    }
+
+    public void setFrustumCulling(boolean frustumCulling) {
+        this.frustumCulling = frustumCulling;
+    }
+
+    public boolean isTransparencySort() {
+        return transparencySort;
+    }
+
+    public void setTransparencySort(boolean transparencySort) {
+        this.transparencySort = transparencySort;
+    }
+
+    public int getVertexArenaPages() {
+        return vertexArenaPages;
+    }
+
+    public void setVertexArenaPages(int vertexArenaPages) {
+        this.vertexArenaPages = vertexArenaPages;
+    }
+
+    public boolean isGpuPalette() {
+        return gpuPalette;
+    }
+
+    public void setGpuPalette(boolean gpuPalette) {
+        this.gpuPalette = gpuPalette;
+    }
+
+    public boolean isGpuModels() {
+        return gpuModels;
+    }
+
+    public void setGpuModels(boolean gpuModels) {
+        this.gpuModels = gpuModels;
+    }
+
+    public boolean isGpuModelsBenchmark() {
+        return gpuModelsBenchmark;
+    }
+
+    public void setGpuModelsBenchmark(boolean gpuModelsBenchmark) {
+        this.gpuModelsBenchmark = gpuModelsBenchmark;
+    }
+
+    public boolean isModelPicking() {
+        return modelPicking;
+    }
+
+    public void setModelPicking(boolean modelPicking) {
+        this.modelPicking = modelPicking;
+    }
+
+    public boolean isGpuScene() {
+        return gpuScene;
+    }
+
+    public void setGpuScene(boolean gpuScene) {
+        this.gpuScene = gpuScene;
+    }
+
+    public boolean isSpriteAtlas() {
+        return spriteAtlas;
+    }
+
+    public void setSpriteAtlas(boolean spriteAtlas) {
+        this.spriteAtlas = spriteAtlas;
+    }
+
+    public int getSpriteAtlasPages() {
+        return spriteAtlasPages;
+    }
+
+    public void setSpriteAtlasPages(int spriteAtlasPages) {
+        this.spriteAtlasPages = spriteAtlasPages;
+    }
+
+    public boolean isUiBatching() {
+        return uiBatching;
+    }
+
+    public void setUiBatching(boolean uiBatching) {
+        this.uiBatching = uiBatching;
+    }
+
+    public boolean isGpuIndexedSprites() {
+        return gpuIndexedSprites;
+    }
+
+    public void setGpuIndexedSprites(boolean gpuIndexedSprites) {
+        this.gpuIndexedSprites = gpuIndexedSprites;
+    }
+
+    public boolean isTextRuns() {
+        return textRuns;
+    }
+
+    public void setTextRuns(boolean textRuns) {
+        this.textRuns = textRuns;
+    }
+
+    public boolean isTextCache() {
+        return textCache;
+    }
+
+    public void setTextCache(boolean textCache) {
+        this.textCache = textCache;
+    }
+
+    public boolean isUiRegionCache() {
+        return uiRegionCache;
+    }
+
+    public void setUiRegionCache(boolean uiRegionCache) {
+        this.uiRegionCache = uiRegionCache;
+    }
+
+    public boolean isSkipBlankRaster() {
+        return skipBlankRaster;
+    }
+
+    public void setSkipBlankRaster(boolean skipBlankRaster) {
+        this.skipBlankRaster = skipBlankRaster;
+    }
+}
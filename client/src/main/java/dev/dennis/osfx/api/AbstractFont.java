@@ -1,6 +1,6 @@
 package dev.dennis.osfx.api;
 
-import java.util.Map;
+import dev.dennis.osfx.util.GlyphIdTable;
 
 public interface AbstractFont {
     byte[][] getGlyphs();
@@ -9,7 +9,7 @@ public interface AbstractFont {
 
     int[] getGlyphHeights();
 
-    Map<byte[], Integer> getGlyphIdMap();
+    GlyphIdTable getGlyphIdTable();
 
     short getTextureId();
 
@@ -11,6 +11,10 @@ public interface Client extends GameEngine {
 
     void setCurrentFont(AbstractFont font);
 
+    long[] getMouseOverHashes();
+
+    void setMouseOverHashes(long[] hashes);
+
     BufferProvider getBufferProvider();
 
     int getGameDrawingMode();
@@ -1,11 +1,10 @@
 package dev.dennis.osfx.mixin;
 
+import dev.dennis.osfx.Callbacks;
 import dev.dennis.osfx.api.AbstractFont;
 import dev.dennis.osfx.api.Client;
 import dev.dennis.osfx.inject.mixin.*;
-
-import java.util.HashMap;
-import java.util.Map;
+import dev.dennis.osfx.util.GlyphIdTable;
 
 @Mixin("AbstractFont")
 public abstract class AbstractFontMixin implements AbstractFont {
@@ -13,7 +12,7 @@ public abstract class AbstractFontMixin implements AbstractFont {
     private static Client client;
 
     @Getter
-    private Map<byte[], Integer> glyphIdMap;
+    private GlyphIdTable glyphIdTable;
 
     @Getter
     @Setter
@@ -26,25 +25,47 @@ public abstract class AbstractFontMixin implements AbstractFont {
     @Inject(value = "<init>", end = true)
     private void onConstructorEnd() {
         this.textureId = -1;
-        this.glyphIdMap = new HashMap<>();
-        byte[][] glyphs = getGlyphs();
-        // The glyphs are null if this instance is used for font metrics
-        if (glyphs[0] != null) {
-            int id = 0;
-            for (byte[] glyph : glyphs) {
-                glyphIdMap.put(glyph, id++);
-            }
-        }
+        // The glyphs are null if this instance is used for font metrics, which leaves the table empty
+        this.glyphIdTable = new GlyphIdTable(getGlyphs());
     }
 
-    @Inject("drawText")
-    private void onDrawText() {
+    @Copy("drawText")
+    public abstract void rs$drawText(String text, int x, int y);
+
+    @Replace("drawText")
+    public void hd$drawText(String text, int x, int y) {
         client.setCurrentFont(this);
+        Callbacks callbacks = client.getCallbacks();
+        if (callbacks == null) {
+            rs$drawText(text, x, y);
+            return;
+        }
+        callbacks.beginText(this, text, x, y);
+        try {
+            rs$drawText(text, x, y);
+        } finally {
+            callbacks.endText();
+        }
     }
 
-    @Inject("drawMouseoverText")
-    private void onDrawMouseoverText() {
+    @Copy("drawMouseoverText")
+    public abstract void rs$drawMouseoverText(String text, int x, int y, int[] offsetsX, int[] offsetsY);
+
+    @Replace("drawMouseoverText")
+    public void hd$drawMouseoverText(String text, int x, int y, int[] offsetsX, int[] offsetsY) {
         client.setCurrentFont(this);
+        Callbacks callbacks = client.getCallbacks();
+        if (callbacks == null) {
+            rs$drawMouseoverText(text, x, y, offsetsX, offsetsY);
+            return;
+        }
+        // Mouseover text moves every frame, so it is never cached
+        callbacks.beginText(this, null, x, y);
+        try {
+            rs$drawMouseoverText(text, x, y, offsetsX, offsetsY);
+        } finally {
+            callbacks.endText();
+        }
     }
 
     @Getter("glyphs")
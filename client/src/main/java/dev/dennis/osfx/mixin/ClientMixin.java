@@ -17,6 +17,10 @@ public abstract class ClientMixin implements Client {
     @Setter
     private AbstractFont currentFont;
 
+    @Getter
+    @Setter
+    private long[] mouseOverHashes;
+
     @Copy("fillRectangle")
     private static void rs$fillRectangle(int x, int y, int width, int height, int rgb) {
         throw new UnsupportedOperationException();
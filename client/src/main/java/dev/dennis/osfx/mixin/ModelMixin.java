@@ -18,7 +18,7 @@ public abstract class ModelMixin implements Model {
     public void hd$draw(int rotation, int pitchSin, int pitchCos, int yawSin, int yawCos, int x, int y, int z,
                         long hash) {
         Callbacks callbacks = client.getCallbacks();
-        if (callbacks != null && callbacks.drawModel(this, rotation, x, y, z)) {
+        if (callbacks != null && callbacks.drawModel(this, rotation, x, y, z, hash)) {
             return;
         }
         rs$draw(rotation, pitchSin, pitchCos, yawSin, yawCos, x, y, z, hash);
@@ -0,0 +1,144 @@
+package dev.dennis.osfx.render;
+
+import java.util.Arrays;
+
+public class DirtyRectTracker {
+    public static final int RECT_SIZE = 4;
+
+    private static final int TILE_WIDTH = 64;
+
+    private static final int BAND_HEIGHT = 16;
+
+    private int[] previous;
+
+    private int width;
+
+    private int height;
+
+    private int[] rects = new int[RECT_SIZE * 64];
+
+    private int rectCount;
+
+    private long dirtyPixels;
+
+    private boolean[] filledTiles;
+
+    private int filledTileCount;
+
+    // Compares the frame with the last one tile by tile and returns the number of rectangles that changed
+    public int update(int[] pixels, int width, int height) {
+        rectCount = 0;
+        dirtyPixels = 0;
+        if (previous == null || this.width != width || this.height != height) {
+            previous = new int[width * height];
+            this.width = width;
+            this.height = height;
+            System.arraycopy(pixels, 0, previous, 0, width * height);
+            int tileCount = (width + TILE_WIDTH - 1) / TILE_WIDTH * ((height + BAND_HEIGHT - 1) / BAND_HEIGHT);
+            filledTiles = new boolean[tileCount];
+            filledTileCount = 0;
+            updateFilledTiles(0, 0, width, height);
+            addRect(0, 0, width, height);
+            return rectCount;
+        }
+
+        for (int bandY = 0; bandY < height; bandY += BAND_HEIGHT) {
+            int bandHeight = Math.min(BAND_HEIGHT, height - bandY);
+            int runStart = -1;
+            for (int tileX = 0; tileX < width + TILE_WIDTH; tileX += TILE_WIDTH) {
+                boolean dirty = tileX < width && isTileDirty(pixels, tileX, bandY,
+                        Math.min(TILE_WIDTH, width - tileX), bandHeight);
+                if (dirty && runStart == -1) {
+                    runStart = tileX;
+                } else if (!dirty && runStart != -1) {
+                    int runWidth = Math.min(tileX, width) - runStart;
+                    for (int y = bandY; y < bandY + bandHeight; y++) {
+                        System.arraycopy(pixels, y * width + runStart, previous, y * width + runStart, runWidth);
+                    }
+                    updateFilledTiles(runStart, bandY, runWidth, bandHeight);
+                    addRect(runStart, bandY, runWidth, bandHeight);
+                    runStart = -1;
+                }
+            }
+        }
+        return rectCount;
+    }
+
+    private boolean isTileDirty(int[] pixels, int x, int y, int tileWidth, int tileHeight) {
+        for (int row = y; row < y + tileHeight; row++) {
+            int start = row * width + x;
+            for (int i = start; i < start + tileWidth; i++) {
+                if (pixels[i] != previous[i]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // Only tiles that just changed are rescanned, so the last frame's content is known without a full pass
+    private void updateFilledTiles(int x, int y, int rectWidth, int rectHeight) {
+        int tilesX = (width + TILE_WIDTH - 1) / TILE_WIDTH;
+        for (int tileY = y / BAND_HEIGHT; tileY * BAND_HEIGHT < y + rectHeight; tileY++) {
+            for (int tileX = x / TILE_WIDTH; tileX * TILE_WIDTH < x + rectWidth; tileX++) {
+                int tile = tileY * tilesX + tileX;
+                boolean filled = isTileFilled(tileX * TILE_WIDTH, tileY * BAND_HEIGHT);
+                if (filled != filledTiles[tile]) {
+                    filledTiles[tile] = filled;
+                    filledTileCount += filled ? 1 : -1;
+                }
+            }
+        }
+    }
+
+    private boolean isTileFilled(int x, int y) {
+        int tileWidth = Math.min(TILE_WIDTH, width - x);
+        for (int row = y; row < Math.min(y + BAND_HEIGHT, height); row++) {
+            int start = row * width + x;
+            for (int i = start; i < start + tileWidth; i++) {
+                if (previous[i] != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void addRect(int x, int y, int rectWidth, int rectHeight) {
+        dirtyPixels += (long) rectWidth * rectHeight;
+        if (rectCount > 0) {
+            // Grows the last rectangle when the band above changed over the same columns, as its rows stay contiguous
+            int last = (rectCount - 1) * RECT_SIZE;
+            if (rects[last] == x && rects[last + 2] == rectWidth && rects[last + 1] + rects[last + 3] == y) {
+                rects[last + 3] += rectHeight;
+                return;
+            }
+        }
+        if ((rectCount + 1) * RECT_SIZE > rects.length) {
+            rects = Arrays.copyOf(rects, rects.length * 2);
+        }
+        int offset = rectCount * RECT_SIZE;
+        rects[offset] = x;
+        rects[offset + 1] = y;
+        rects[offset + 2] = rectWidth;
+        rects[offset + 3] = rectHeight;
+        rectCount++;
+    }
+
+    public int[] getRects() {
+        return rects;
+    }
+
+    public int getRectCount() {
+        return rectCount;
+    }
+
+    public long getDirtyPixels() {
+        return dirtyPixels;
+    }
+
+    // Whether every pixel of the last frame is zero, which is what a raster no software draw touched holds
+    public boolean isBlank() {
+        return filledTileCount == 0;
+    }
+}
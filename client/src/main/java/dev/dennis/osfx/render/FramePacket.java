@@ -0,0 +1,593 @@
+package dev.dennis.osfx.render;
+
+import dev.dennis.osfx.Renderer;
+import dev.dennis.osfx.api.Model;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class FramePacket {
+    private static final int SMALL_TEXTURE_PIXELS = 4096;
+
+    private static final int SMALL_TEXTURE_SIZE = 64;
+
+    private static final int TEXTURE_SIZE = 128;
+
+    private final SceneVertexFormat vertexFormat;
+
+    private final int vertexStride;
+
+    private final List<RenderCommand> renderCommands;
+
+    private final List<RenderModelCommand> renderModelCommands;
+
+    private final List<RenderModelCommand> transparentModelCommands;
+
+    private final List<TextureUpload> textureUploads;
+
+    private final List<SpriteUpload> spriteUploads;
+
+    private final List<IndexedSpriteUpload> indexedSpriteUploads;
+
+    private final List<IndexedSpriteEntry> indexedSpriteReleases;
+
+    private final List<VertexJob> vertexJobs;
+
+    private final List<ModelCacheEntry> modelCacheUploads;
+
+    private final List<TerrainChunkBuffer> terrainUploads;
+
+    private final List<StaticGeometry> geometryReleases;
+
+    private final List<ModelVertexJob> modelJobPool;
+
+    private final List<TilePaintVertexJob> tilePaintJobPool;
+
+    private final List<TileModelVertexJob> tileModelJobPool;
+
+    private final List<RenderModelCommand> renderModelCommandPool;
+
+    private final Map<Model, ModelInstances> modelInstances;
+
+    private final List<ModelInstances> modelInstancesPool;
+
+    private int modelInstancesCount;
+
+    private int modelJobCount;
+
+    private int tilePaintJobCount;
+
+    private int tileModelJobCount;
+
+    private final VertexArena vertexArena;
+
+    private ByteBuffer shortIndexBuffer;
+
+    private int shortIndexCount;
+
+    private ByteBuffer wideIndexBuffer;
+
+    private int wideIndexCount;
+
+    private ByteBuffer transparentVertexBuffer;
+
+    private int transparentVertexCount;
+
+    private IntBuffer pixelsBuf;
+
+    private int[] pixelRects;
+
+    private int pixelRectCount;
+
+    private boolean rasterDrawn;
+
+    private IntBuffer paletteBuf;
+
+    private boolean paletteChanged;
+
+    private int canvasX;
+
+    private int canvasY;
+
+    private int canvasWidth;
+
+    private int canvasHeight;
+
+    private boolean viewportVisible;
+
+    private int viewportWidth;
+
+    private int viewportHeight;
+
+    private int cameraPitch;
+
+    private int cameraYaw;
+
+    private int cameraZoom;
+
+    private int textureCount;
+
+    private boolean gpuModels;
+
+    private long recordStart;
+
+    private long recordEnd;
+
+    public FramePacket(SceneVertexFormat vertexFormat, int initialPageCount) {
+        this.vertexFormat = vertexFormat;
+        this.vertexStride = vertexFormat.getStride();
+        this.renderCommands = new ArrayList<>();
+        this.renderModelCommands = new ArrayList<>();
+        this.transparentModelCommands = new ArrayList<>();
+        this.textureUploads = new ArrayList<>();
+        this.spriteUploads = new ArrayList<>();
+        this.indexedSpriteUploads = new ArrayList<>();
+        this.indexedSpriteReleases = new ArrayList<>();
+        this.vertexJobs = new ArrayList<>();
+        this.modelCacheUploads = new ArrayList<>();
+        this.terrainUploads = new ArrayList<>();
+        this.geometryReleases = new ArrayList<>();
+        this.modelJobPool = new ArrayList<>();
+        this.tilePaintJobPool = new ArrayList<>();
+        this.tileModelJobPool = new ArrayList<>();
+        this.renderModelCommandPool = new ArrayList<>();
+        this.modelInstances = new IdentityHashMap<>();
+        this.modelInstancesPool = new ArrayList<>();
+        this.vertexArena = new VertexArena(vertexStride, initialPageCount);
+        this.textureCount = -1;
+    }
+
+    public int reserveVertices(int vertexCount) {
+        return vertexArena.reserve(vertexCount);
+    }
+
+    public ByteBuffer getVertexSlice(int vertexStart, int vertexCount) {
+        return vertexArena.getSlice(vertexStart, vertexCount);
+    }
+
+    public ByteBuffer getEncodeBuffer(int vertexStart, int vertexCount) {
+        return vertexArena.getEncodeBuffer(vertexStart, vertexCount);
+    }
+
+    public int reserveIndices(int indexCount, boolean wide) {
+        int indexStart;
+        if (wide) {
+            wideIndexBuffer = grow(wideIndexBuffer, wideIndexCount << 2, wideIndexCount + indexCount << 2);
+            indexStart = wideIndexCount;
+            wideIndexCount += indexCount;
+        } else {
+            shortIndexBuffer = grow(shortIndexBuffer, shortIndexCount << 1, shortIndexCount + indexCount << 1);
+            indexStart = shortIndexCount;
+            shortIndexCount += indexCount;
+        }
+        return indexStart;
+    }
+
+    // Written through absolute offsets only, so packing threads can share it
+    public ByteBuffer getIndexStorage(boolean wide) {
+        return wide ? wideIndexBuffer : shortIndexBuffer;
+    }
+
+    public void compactVertices() {
+        // Deduplicated jobs only fill the front of their reserved range, so close the gaps within each page
+        vertexArena.resetPacked();
+        for (int i = 0; i < vertexJobs.size(); i++) {
+            VertexJob job = vertexJobs.get(i);
+            job.setPackedVertexStart(vertexArena.pack(job.getVertexStart(), job.getPackedVertexCount()));
+        }
+    }
+
+    public ByteBuffer allocateTransparentVertices(int vertexCount) {
+        transparentVertexBuffer = grow(transparentVertexBuffer, 0, vertexCount * vertexStride);
+        transparentVertexCount = vertexCount;
+        transparentVertexBuffer.clear();
+        return transparentVertexBuffer;
+    }
+
+    private static ByteBuffer grow(ByteBuffer buffer, int usedBytes, int requiredBytes) {
+        if (buffer != null && buffer.capacity() >= requiredBytes) {
+            return buffer;
+        }
+        int capacity = buffer != null ? buffer.capacity() * 2 : 64 * 1024;
+        while (capacity < requiredBytes) {
+            capacity *= 2;
+        }
+        ByteBuffer newBuffer = MemoryUtil.memAlloc(capacity);
+        if (buffer != null) {
+            MemoryUtil.memCopy(MemoryUtil.memAddress0(buffer), MemoryUtil.memAddress0(newBuffer), usedBytes);
+            MemoryUtil.memFree(buffer);
+        }
+        return newBuffer;
+    }
+
+    public RenderModelCommand addModelCommand() {
+        int index = renderModelCommands.size();
+        if (index == renderModelCommandPool.size()) {
+            renderModelCommandPool.add(new RenderModelCommand());
+        }
+        RenderModelCommand command = renderModelCommandPool.get(index);
+        renderModelCommands.add(command);
+        return command;
+    }
+
+    public void addTransparentModelCommand(RenderModelCommand command) {
+        transparentModelCommands.add(command);
+    }
+
+    public ModelVertexJob obtainModelJob() {
+        if (modelJobCount == modelJobPool.size()) {
+            modelJobPool.add(new ModelVertexJob());
+        }
+        return modelJobPool.get(modelJobCount++);
+    }
+
+    public TilePaintVertexJob obtainTilePaintJob() {
+        if (tilePaintJobCount == tilePaintJobPool.size()) {
+            tilePaintJobPool.add(new TilePaintVertexJob());
+        }
+        return tilePaintJobPool.get(tilePaintJobCount++);
+    }
+
+    public TileModelVertexJob obtainTileModelJob() {
+        if (tileModelJobCount == tileModelJobPool.size()) {
+            tileModelJobPool.add(new TileModelVertexJob());
+        }
+        return tileModelJobPool.get(tileModelJobCount++);
+    }
+
+    // Only a draw of the same pose can reuse the first draw's vertices, as shared models are posed again per draw
+    public ModelInstances getModelInstances(Model model, long stamp) {
+        ModelInstances instances = modelInstances.get(model);
+        return instances != null && instances.getStamp() == stamp ? instances : null;
+    }
+
+    public ModelInstances obtainModelInstances(Model model, long stamp) {
+        if (modelInstancesCount == modelInstancesPool.size()) {
+            modelInstancesPool.add(new ModelInstances());
+        }
+        ModelInstances instances = modelInstancesPool.get(modelInstancesCount++);
+        instances.reset(stamp);
+        modelInstances.put(model, instances);
+        return instances;
+    }
+
+    // Only the rectangles that changed since the last frame are staged, packed one after another
+    public void capturePixels(int[] pixels, int width, int height, DirtyRectTracker tracker) {
+        int rectCount = tracker.update(pixels, width, height);
+        int[] rects = tracker.getRects();
+        if (pixelsBuf == null || pixelsBuf.capacity() < width * height) {
+            if (pixelsBuf != null) {
+                MemoryUtil.memFree(pixelsBuf);
+            }
+            pixelsBuf = MemoryUtil.memAllocInt(width * height);
+        }
+        if (pixelRects == null || pixelRects.length < rectCount * DirtyRectTracker.RECT_SIZE) {
+            pixelRects = new int[rects.length];
+        }
+        System.arraycopy(rects, 0, pixelRects, 0, rectCount * DirtyRectTracker.RECT_SIZE);
+        pixelRectCount = rectCount;
+
+        pixelsBuf.clear();
+        for (int i = 0; i < rectCount; i++) {
+            int offset = i * DirtyRectTracker.RECT_SIZE;
+            int x = rects[offset];
+            int y = rects[offset + 1];
+            int rectWidth = rects[offset + 2];
+            int rectHeight = rects[offset + 3];
+            for (int row = y; row < y + rectHeight; row++) {
+                pixelsBuf.put(pixels, row * width + x, rectWidth);
+            }
+        }
+        pixelsBuf.flip();
+        canvasWidth = width;
+        canvasHeight = height;
+    }
+
+    public void capturePalette(int[] colorPalette) {
+        if (paletteBuf == null) {
+            paletteBuf = MemoryUtil.memAllocInt(colorPalette.length);
+        }
+        paletteBuf.clear();
+        paletteBuf.put(colorPalette);
+        paletteBuf.flip();
+        paletteChanged = true;
+    }
+
+    public void addTextureUpload(int layer, int[] pixels) {
+        IntBuffer pixelsBuf = MemoryUtil.memAllocInt(pixels.length);
+        for (int pixel : pixels) {
+            if (pixel != 0) {
+                pixel |= 0xFF << 24;
+            }
+            pixelsBuf.put(pixel);
+        }
+        pixelsBuf.flip();
+        int size = pixels.length == SMALL_TEXTURE_PIXELS ? SMALL_TEXTURE_SIZE : TEXTURE_SIZE;
+        textureUploads.add(new TextureUpload(layer, size, pixelsBuf));
+    }
+
+    public void addSpriteUpload(SpriteAtlasPage page, int x, int y, int width, int height, int[] pixels,
+                                int spriteWidth, int spriteHeight, int padding) {
+        // The border around the sprite is left transparent
+        IntBuffer pixelsBuf = MemoryUtil.memCallocInt(width * height);
+        for (int row = 0; row < spriteHeight; row++) {
+            pixelsBuf.position((row + padding) * width + padding);
+            pixelsBuf.put(pixels, row * spriteWidth, spriteWidth);
+        }
+        pixelsBuf.clear();
+        spriteUploads.add(new SpriteUpload(page, x, y, width, height, pixelsBuf));
+    }
+
+    public void addIndexedSpriteUpload(IndexedSpriteEntry entry, byte[] pixels, int[] palette) {
+        ByteBuffer indicesBuf = MemoryUtil.memAlloc(entry.getWidth() * entry.getHeight());
+        indicesBuf.put(pixels, 0, indicesBuf.capacity());
+        indicesBuf.flip();
+        IntBuffer paletteBuf = MemoryUtil.memCallocInt(IndexedSpriteCache.PALETTE_SIZE);
+        for (int i = 0; i < Math.min(palette.length, IndexedSpriteCache.PALETTE_SIZE); i++) {
+            paletteBuf.put(i, 0xFF << 24 | palette[i]);
+        }
+        indexedSpriteUploads.add(new IndexedSpriteUpload(entry, indicesBuf, paletteBuf));
+    }
+
+    // Indexed loops, as reset runs every frame and iterators would be its only garbage
+    public void reset(Renderer renderer) {
+        for (int i = 0; i < renderCommands.size(); i++) {
+            renderCommands.get(i).cleanup(renderer);
+        }
+        renderCommands.clear();
+        renderModelCommands.clear();
+        transparentModelCommands.clear();
+
+        for (int i = 0; i < textureUploads.size(); i++) {
+            MemoryUtil.memFree(textureUploads.get(i).getPixelsBuf());
+        }
+        textureUploads.clear();
+        for (int i = 0; i < spriteUploads.size(); i++) {
+            MemoryUtil.memFree(spriteUploads.get(i).getPixelsBuf());
+        }
+        spriteUploads.clear();
+        for (int i = 0; i < indexedSpriteUploads.size(); i++) {
+            IndexedSpriteUpload upload = indexedSpriteUploads.get(i);
+            MemoryUtil.memFree(upload.getIndicesBuf());
+            MemoryUtil.memFree(upload.getPaletteBuf());
+        }
+        indexedSpriteUploads.clear();
+        textureCount = -1;
+        paletteChanged = false;
+        gpuModels = false;
+        indexedSpriteReleases.clear();
+
+        vertexJobs.clear();
+        modelCacheUploads.clear();
+        terrainUploads.clear();
+        geometryReleases.clear();
+        modelJobCount = 0;
+        tilePaintJobCount = 0;
+        tileModelJobCount = 0;
+        modelInstances.clear();
+        modelInstancesCount = 0;
+
+        vertexArena.reset();
+        shortIndexCount = 0;
+        wideIndexCount = 0;
+        transparentVertexCount = 0;
+    }
+
+    public void free() {
+        vertexArena.free();
+        MemoryUtil.memFree(shortIndexBuffer);
+        MemoryUtil.memFree(wideIndexBuffer);
+        MemoryUtil.memFree(transparentVertexBuffer);
+        if (pixelsBuf != null) {
+            MemoryUtil.memFree(pixelsBuf);
+        }
+        if (paletteBuf != null) {
+            MemoryUtil.memFree(paletteBuf);
+        }
+        for (TextureUpload upload : textureUploads) {
+            MemoryUtil.memFree(upload.getPixelsBuf());
+        }
+        textureUploads.clear();
+        for (SpriteUpload upload : spriteUploads) {
+            MemoryUtil.memFree(upload.getPixelsBuf());
+        }
+        spriteUploads.clear();
+        for (IndexedSpriteUpload upload : indexedSpriteUploads) {
+            MemoryUtil.memFree(upload.getIndicesBuf());
+            MemoryUtil.memFree(upload.getPaletteBuf());
+        }
+        indexedSpriteUploads.clear();
+    }
+
+    public List<RenderCommand> getRenderCommands() {
+        return renderCommands;
+    }
+
+    public List<RenderModelCommand> getRenderModelCommands() {
+        return renderModelCommands;
+    }
+
+    public List<RenderModelCommand> getTransparentModelCommands() {
+        return transparentModelCommands;
+    }
+
+    public List<TextureUpload> getTextureUploads() {
+        return textureUploads;
+    }
+
+    public List<SpriteUpload> getSpriteUploads() {
+        return spriteUploads;
+    }
+
+    public List<IndexedSpriteUpload> getIndexedSpriteUploads() {
+        return indexedSpriteUploads;
+    }
+
+    public List<IndexedSpriteEntry> getIndexedSpriteReleases() {
+        return indexedSpriteReleases;
+    }
+
+    public List<VertexJob> getVertexJobs() {
+        return vertexJobs;
+    }
+
+    public List<ModelCacheEntry> getModelCacheUploads() {
+        return modelCacheUploads;
+    }
+
+    public List<TerrainChunkBuffer> getTerrainUploads() {
+        return terrainUploads;
+    }
+
+    public List<StaticGeometry> getGeometryReleases() {
+        return geometryReleases;
+    }
+
+    public SceneVertexFormat getVertexFormat() {
+        return vertexFormat;
+    }
+
+    public VertexArena getVertexArena() {
+        return vertexArena;
+    }
+
+    public ByteBuffer getIndexBuffer(boolean wide) {
+        ByteBuffer indexBuffer = wide ? wideIndexBuffer : shortIndexBuffer;
+        return MemoryUtil.memByteBuffer(MemoryUtil.memAddress0(indexBuffer), getIndexCount(wide) << (wide ? 2 : 1));
+    }
+
+    public int getIndexCount(boolean wide) {
+        return wide ? wideIndexCount : shortIndexCount;
+    }
+
+    public ByteBuffer getTransparentVertexBuffer() {
+        return MemoryUtil.memByteBuffer(MemoryUtil.memAddress0(transparentVertexBuffer),
+                transparentVertexCount * vertexStride);
+    }
+
+    public int getTransparentVertexCount() {
+        return transparentVertexCount;
+    }
+
+    public IntBuffer getPixelsBuf() {
+        return pixelsBuf;
+    }
+
+    public int[] getPixelRects() {
+        return pixelRects;
+    }
+
+    public int getPixelRectCount() {
+        return pixelRectCount;
+    }
+
+    public boolean isRasterDrawn() {
+        return rasterDrawn;
+    }
+
+    public void setRasterDrawn(boolean rasterDrawn) {
+        this.rasterDrawn = rasterDrawn;
+    }
+
+    public IntBuffer getPaletteBuf() {
+        return paletteBuf;
+    }
+
+    public boolean isPaletteChanged() {
+        return paletteChanged;
+    }
+
+    public int getCanvasX() {
+        return canvasX;
+    }
+
+    public int getCanvasY() {
+        return canvasY;
+    }
+
+    public void setCanvasPosition(int canvasX, int canvasY) {
+        this.canvasX = canvasX;
+        this.canvasY = canvasY;
+    }
+
+    public int getCanvasWidth() {
+        return canvasWidth;
+    }
+
+    public int getCanvasHeight() {
+        return canvasHeight;
+    }
+
+    public boolean isViewportVisible() {
+        return viewportVisible;
+    }
+
+    public int getViewportWidth() {
+        return viewportWidth;
+    }
+
+    public int getViewportHeight() {
+        return viewportHeight;
+    }
+
+    public void setViewport(boolean visible, int width, int height) {
+        this.viewportVisible = visible;
+        this.viewportWidth = width;
+        this.viewportHeight = height;
+    }
+
+    public int getCameraPitch() {
+        return cameraPitch;
+    }
+
+    public int getCameraYaw() {
+        return cameraYaw;
+    }
+
+    public int getCameraZoom() {
+        return cameraZoom;
+    }
+
+    public void setCamera(int pitch, int yaw, int zoom) {
+        this.cameraPitch = pitch;
+        this.cameraYaw = yaw;
+        this.cameraZoom = zoom;
+    }
+
+    public int getTextureCount() {
+        return textureCount;
+    }
+
+    public void setTextureCount(int textureCount) {
+        this.textureCount = textureCount;
+    }
+
+    public boolean isGpuModels() {
+        return gpuModels;
+    }
+
+    public void setGpuModels(boolean gpuModels) {
+        this.gpuModels = gpuModels;
+    }
+
+    public long getRecordStart() {
+        return recordStart;
+    }
+
+    public void setRecordStart(long recordStart) {
+        this.recordStart = recordStart;
+    }
+
+    public long getRecordEnd() {
+        return recordEnd;
+    }
+
+    public void setRecordEnd(long recordEnd) {
+        this.recordEnd = recordEnd;
+    }
+}
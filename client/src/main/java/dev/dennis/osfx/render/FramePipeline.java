@@ -0,0 +1,188 @@
+package dev.dennis.osfx.render;
+
+import dev.dennis.osfx.Renderer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+
+public class FramePipeline {
+    private static final long MAX_PARK_NANOS = 1_000_000L;
+
+    private static final double STATS_SMOOTHING = 0.05;
+
+    private static final double NANOS_TO_MILLIS = 1.0 / 1_000_000.0;
+
+    private final List<FramePacket> packets;
+
+    private final Queue<FramePacket> freePackets;
+
+    private final Queue<FramePacket> readyPackets;
+
+    private volatile Thread freeWaiter;
+
+    private volatile Thread readyWaiter;
+
+    private volatile boolean closed;
+
+    private FramePacket inFlightPacket;
+
+    private long lastSubmitStart;
+
+    private long lastSubmitEnd;
+
+    private volatile long frameCount;
+
+    private volatile double latencyMillis;
+
+    private volatile double overlap;
+
+    private volatile double recordMillis;
+
+    private volatile double submitMillis;
+
+    public FramePipeline(int packetCount, SceneVertexFormat vertexFormat, int initialPageCount) {
+        this.packets = new ArrayList<>(packetCount);
+        this.freePackets = new ConcurrentLinkedQueue<>();
+        this.readyPackets = new ConcurrentLinkedQueue<>();
+        for (int i = 0; i < packetCount; i++) {
+            FramePacket packet = new FramePacket(vertexFormat, initialPageCount);
+            packets.add(packet);
+            freePackets.offer(packet);
+        }
+    }
+
+    public FramePacket acquire() {
+        FramePacket packet;
+        while ((packet = freePackets.poll()) == null) {
+            if (closed) {
+                return null;
+            }
+            freeWaiter = Thread.currentThread();
+            if (freePackets.isEmpty() && !closed) {
+                LockSupport.parkNanos(this, MAX_PARK_NANOS);
+            }
+            freeWaiter = null;
+        }
+        packet.setRecordStart(System.nanoTime());
+        return packet;
+    }
+
+    public void publish(FramePacket packet) {
+        packet.setRecordEnd(System.nanoTime());
+        readyPackets.offer(packet);
+        unpark(readyWaiter);
+    }
+
+    public FramePacket poll(long timeoutNanos) {
+        long deadline = System.nanoTime() + timeoutNanos;
+        FramePacket packet;
+        while ((packet = readyPackets.poll()) == null) {
+            long remaining = deadline - System.nanoTime();
+            if (closed || remaining <= 0) {
+                return null;
+            }
+            readyWaiter = Thread.currentThread();
+            if (readyPackets.isEmpty() && !closed) {
+                LockSupport.parkNanos(this, Math.min(remaining, MAX_PARK_NANOS));
+            }
+            readyWaiter = null;
+        }
+        return packet;
+    }
+
+    public void retire(FramePacket packet, Renderer renderer, long submitStart) {
+        long submitEnd = System.nanoTime();
+
+        long recordStart = packet.getRecordStart();
+        long recordEnd = packet.getRecordEnd();
+        long recordTime = recordEnd - recordStart;
+        long overlapTime = Math.min(recordEnd, lastSubmitEnd) - Math.max(recordStart, lastSubmitStart);
+        double frameOverlap = recordTime > 0 ? Math.max(0L, overlapTime) / (double) recordTime : 0.0;
+
+        if (frameCount == 0) {
+            latencyMillis = (submitEnd - recordStart) * NANOS_TO_MILLIS;
+            recordMillis = recordTime * NANOS_TO_MILLIS;
+            submitMillis = (submitEnd - submitStart) * NANOS_TO_MILLIS;
+            overlap = frameOverlap;
+        } else {
+            latencyMillis = smooth(latencyMillis, (submitEnd - recordStart) * NANOS_TO_MILLIS);
+            recordMillis = smooth(recordMillis, recordTime * NANOS_TO_MILLIS);
+            submitMillis = smooth(submitMillis, (submitEnd - submitStart) * NANOS_TO_MILLIS);
+            overlap = smooth(overlap, frameOverlap);
+        }
+        frameCount++;
+
+        lastSubmitStart = submitStart;
+        lastSubmitEnd = submitEnd;
+
+        // bgfx may still read the packet's memory until the next frame has been submitted
+        if (inFlightPacket != null) {
+            inFlightPacket.reset(renderer);
+            freePackets.offer(inFlightPacket);
+            unpark(freeWaiter);
+        }
+        inFlightPacket = packet;
+    }
+
+    public void close() {
+        closed = true;
+        unpark(freeWaiter);
+        unpark(readyWaiter);
+    }
+
+    public void free(Renderer renderer) {
+        for (FramePacket packet : packets) {
+            packet.reset(renderer);
+            packet.free();
+        }
+        packets.clear();
+        freePackets.clear();
+        readyPackets.clear();
+        inFlightPacket = null;
+    }
+
+    private static double smooth(double average, double value) {
+        return average + (value - average) * STATS_SMOOTHING;
+    }
+
+    private static void unpark(Thread thread) {
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    public double getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public double getOverlap() {
+        return overlap;
+    }
+
+    public double getRecordMillis() {
+        return recordMillis;
+    }
+
+    public double getSubmitMillis() {
+        return submitMillis;
+    }
+
+    public int getAllocatedVertexPages() {
+        int allocatedPages = 0;
+        for (FramePacket packet : packets) {
+            allocatedPages += packet.getVertexArena().getAllocatedPages();
+        }
+        return allocatedPages;
+    }
+}
@@ -0,0 +1,127 @@
+package dev.dennis.osfx.render;
+
+import dev.dennis.osfx.api.SceneTileModel;
+import org.joml.FrustumIntersection;
+import org.joml.Matrix4f;
+
+public class FrustumCuller {
+    private static final int LOCAL_TILE_SIZE = 128;
+
+    private final FrustumIntersection frustum;
+
+    private int culledModels;
+
+    private int drawnModels;
+
+    private int culledTiles;
+
+    private int drawnTiles;
+
+    private volatile int lastCulledModels;
+
+    private volatile int lastDrawnModels;
+
+    private volatile int lastCulledTiles;
+
+    private volatile int lastDrawnTiles;
+
+    public FrustumCuller() {
+        this.frustum = new FrustumIntersection();
+    }
+
+    public void beginFrame(Matrix4f viewProjection) {
+        frustum.set(viewProjection);
+
+        lastCulledModels = culledModels;
+        lastDrawnModels = drawnModels;
+        lastCulledTiles = culledTiles;
+        lastDrawnTiles = drawnTiles;
+        culledModels = 0;
+        drawnModels = 0;
+        culledTiles = 0;
+        drawnTiles = 0;
+    }
+
+    public boolean isModelVisible(ModelBounds bounds, int x, int y, int z) {
+        if (bounds.isEmpty()) {
+            return count(false, true);
+        }
+        float radius = bounds.getRadius();
+        return count(frustum.testAab(x - radius, y + bounds.getMinY(), z - radius, x + radius,
+                y + bounds.getMaxY(), z + radius), true);
+    }
+
+    public boolean isTilePaintVisible(int localX, int localY, int cameraX, int cameraY, int cameraZ, int swHeight,
+                                      int seHeight, int neHeight, int nwHeight) {
+        int minHeight = Math.min(Math.min(swHeight, seHeight), Math.min(neHeight, nwHeight));
+        int maxHeight = Math.max(Math.max(swHeight, seHeight), Math.max(neHeight, nwHeight));
+        float minX = localX - cameraX;
+        float minZ = localY - cameraY;
+        return count(frustum.testAab(minX, minHeight - cameraZ, minZ, minX + LOCAL_TILE_SIZE,
+                maxHeight - cameraZ, minZ + LOCAL_TILE_SIZE), false);
+    }
+
+    public boolean isAreaVisible(int localX, int localY, int size, int cameraX, int cameraY, int cameraZ,
+                                 int minHeight, int maxHeight) {
+        float minX = localX - cameraX;
+        float minZ = localY - cameraY;
+        return frustum.testAab(minX, minHeight - cameraZ, minZ, minX + size, maxHeight - cameraZ, minZ + size);
+    }
+
+    public boolean isTileModelVisible(SceneTileModel tile, int cameraX, int cameraY, int cameraZ) {
+        int[] verticesX = tile.getVerticesX();
+        int[] verticesY = tile.getVerticesY();
+        int[] verticesZ = tile.getVerticesZ();
+
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+        for (int i = 0; i < verticesX.length; i++) {
+            minX = Math.min(minX, verticesX[i]);
+            minY = Math.min(minY, verticesY[i]);
+            minZ = Math.min(minZ, verticesZ[i]);
+            maxX = Math.max(maxX, verticesX[i]);
+            maxY = Math.max(maxY, verticesY[i]);
+            maxZ = Math.max(maxZ, verticesZ[i]);
+        }
+        if (minX > maxX) {
+            return count(false, false);
+        }
+        return count(frustum.testAab(minX - cameraX, minY - cameraZ, minZ - cameraY, maxX - cameraX,
+                maxY - cameraZ, maxZ - cameraY), false);
+    }
+
+    private boolean count(boolean visible, boolean model) {
+        if (model) {
+            if (visible) {
+                drawnModels++;
+            } else {
+                culledModels++;
+            }
+        } else if (visible) {
+            drawnTiles++;
+        } else {
+            culledTiles++;
+        }
+        return visible;
+    }
+
+    public int getCulledModels() {
+        return lastCulledModels;
+    }
+
+    public int getDrawnModels() {
+        return lastDrawnModels;
+    }
+
+    public int getCulledTiles() {
+        return lastCulledTiles;
+    }
+
+    public int getDrawnTiles() {
+        return lastDrawnTiles;
+    }
+}
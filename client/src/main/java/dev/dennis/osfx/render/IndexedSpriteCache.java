@@ -0,0 +1,86 @@
+package dev.dennis.osfx.render;
+
+import dev.dennis.osfx.api.IndexedSprite;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+public class IndexedSpriteCache {
+    public static final int PALETTE_SIZE = 256;
+
+    private static final int SWEEP_INTERVAL = 600;
+
+    private final Map<IndexedSprite, IndexedSpriteEntry> entries;
+
+    private long frame;
+
+    private long nextEntryId;
+
+    private volatile long hits;
+
+    private volatile long uploads;
+
+    private volatile int cachedSprites;
+
+    public IndexedSpriteCache() {
+        this.entries = new HashMap<>();
+    }
+
+    public void beginFrame(FramePacket packet) {
+        frame++;
+        if (frame % SWEEP_INTERVAL != 0) {
+            return;
+        }
+        // Sprites the client has stopped drawing give their textures back
+        Iterator<IndexedSpriteEntry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            IndexedSpriteEntry entry = iterator.next();
+            if (frame - entry.getLastUsedFrame() >= SWEEP_INTERVAL) {
+                packet.getIndexedSpriteReleases().add(entry);
+                iterator.remove();
+            }
+        }
+        cachedSprites = entries.size();
+    }
+
+    public IndexedSpriteEntry get(IndexedSprite sprite, FramePacket packet) {
+        byte[] pixels = sprite.getPixels();
+        int[] palette = sprite.getPalette();
+        int width = sprite.getWidth();
+        int height = sprite.getHeight();
+        // Index data is only ever replaced, but palettes are small enough to hash on every draw
+        int paletteStamp = Arrays.hashCode(palette);
+
+        IndexedSpriteEntry entry = entries.get(sprite);
+        if (entry != null && entry.isValid(pixels, paletteStamp, width, height)) {
+            entry.setLastUsedFrame(frame);
+            hits++;
+            return entry;
+        }
+        if (entry != null) {
+            packet.getIndexedSpriteReleases().add(entry);
+        }
+
+        entry = new IndexedSpriteEntry(nextEntryId++, pixels, paletteStamp, width, height);
+        entry.setLastUsedFrame(frame);
+        entries.put(sprite, entry);
+        packet.addIndexedSpriteUpload(entry, pixels, palette);
+        uploads++;
+        cachedSprites = entries.size();
+        return entry;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getUploads() {
+        return uploads;
+    }
+
+    public int getCachedSprites() {
+        return cachedSprites;
+    }
+}
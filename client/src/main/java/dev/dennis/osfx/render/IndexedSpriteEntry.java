@@ -0,0 +1,78 @@
+package dev.dennis.osfx.render;
+
+public class IndexedSpriteEntry {
+    private final long id;
+
+    private final byte[] pixels;
+
+    private final int paletteStamp;
+
+    private final int width;
+
+    private final int height;
+
+    private long lastUsedFrame;
+
+    private volatile short indexTextureId;
+
+    private volatile short paletteTextureId;
+
+    public IndexedSpriteEntry(long id, byte[] pixels, int paletteStamp, int width, int height) {
+        this.id = id;
+        this.pixels = pixels;
+        this.paletteStamp = paletteStamp;
+        this.width = width;
+        this.height = height;
+        this.indexTextureId = -1;
+        this.paletteTextureId = -1;
+    }
+
+    public boolean isValid(byte[] pixels, int paletteStamp, int width, int height) {
+        return this.pixels == pixels && this.paletteStamp == paletteStamp && this.width == width
+                && this.height == height;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public byte[] getPixels() {
+        return pixels;
+    }
+
+    public int getPaletteStamp() {
+        return paletteStamp;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public long getLastUsedFrame() {
+        return lastUsedFrame;
+    }
+
+    public void setLastUsedFrame(long lastUsedFrame) {
+        this.lastUsedFrame = lastUsedFrame;
+    }
+
+    public short getIndexTextureId() {
+        return indexTextureId;
+    }
+
+    public void setIndexTextureId(short indexTextureId) {
+        this.indexTextureId = indexTextureId;
+    }
+
+    public short getPaletteTextureId() {
+        return paletteTextureId;
+    }
+
+    public void setPaletteTextureId(short paletteTextureId) {
+        this.paletteTextureId = paletteTextureId;
+    }
+}
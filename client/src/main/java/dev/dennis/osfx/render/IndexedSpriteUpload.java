@@ -0,0 +1,30 @@
+package dev.dennis.osfx.render;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+
+public class IndexedSpriteUpload {
+    private final IndexedSpriteEntry entry;
+
+    private final ByteBuffer indicesBuf;
+
+    private final IntBuffer paletteBuf;
+
+    public IndexedSpriteUpload(IndexedSpriteEntry entry, ByteBuffer indicesBuf, IntBuffer paletteBuf) {
+        this.entry = entry;
+        this.indicesBuf = indicesBuf;
+        this.paletteBuf = paletteBuf;
+    }
+
+    public IndexedSpriteEntry getEntry() {
+        return entry;
+    }
+
+    public ByteBuffer getIndicesBuf() {
+        return indicesBuf;
+    }
+
+    public IntBuffer getPaletteBuf() {
+        return paletteBuf;
+    }
+}
@@ -0,0 +1,74 @@
+package dev.dennis.osfx.render;
+
+import dev.dennis.osfx.api.Model;
+
+public class ModelBounds {
+    private float radius;
+
+    private int minY;
+
+    private int maxY;
+
+    private long stamp;
+
+    public void set(Model model) {
+        int[] verticesX = model.getVerticesX();
+        int[] verticesY = model.getVerticesY();
+        int[] verticesZ = model.getVerticesZ();
+        byte[] triangleAlphas = model.getTriangleAlphas();
+
+        long stamp = model.getVertexCount();
+        stamp = stamp * 31 + model.getTriangleCount();
+        stamp = stamp * 31 + System.identityHashCode(model.getIndicesA());
+        stamp = stamp * 31 + System.identityHashCode(model.getColorsA());
+        stamp = stamp * 31 + System.identityHashCode(model.getColorsB());
+        stamp = stamp * 31 + System.identityHashCode(model.getColorsC());
+        stamp = stamp * 31 + System.identityHashCode(model.getTriangleTextures());
+
+        // Rotation is only ever around the y axis, so the horizontal radius bounds every orientation
+        int maxRadiusSquared = 0;
+        int minY = Integer.MAX_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < model.getVertexCount(); i++) {
+            int vertexX = verticesX[i];
+            int vertexY = verticesY[i];
+            int vertexZ = verticesZ[i];
+            // Animations transform vertices and alphas in place, so their contents have to be part of the stamp
+            stamp = stamp * 31 + vertexX;
+            stamp = stamp * 31 + vertexY;
+            stamp = stamp * 31 + vertexZ;
+            maxRadiusSquared = Math.max(maxRadiusSquared, vertexX * vertexX + vertexZ * vertexZ);
+            minY = Math.min(minY, vertexY);
+            maxY = Math.max(maxY, vertexY);
+        }
+        if (triangleAlphas != null) {
+            for (int i = 0; i < model.getTriangleCount(); i++) {
+                stamp = stamp * 31 + triangleAlphas[i];
+            }
+        }
+        this.radius = (float) Math.sqrt(maxRadiusSquared);
+        this.minY = minY;
+        this.maxY = maxY;
+        this.stamp = stamp;
+    }
+
+    public boolean isEmpty() {
+        return minY > maxY;
+    }
+
+    public float getRadius() {
+        return radius;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getMaxY() {
+        return maxY;
+    }
+
+    public long getStamp() {
+        return stamp;
+    }
+}
@@ -0,0 +1,270 @@
+package dev.dennis.osfx.render;
+
+import java.util.Arrays;
+
+public class ModelBvh {
+    private static final int LEAF_SIZE = 4;
+
+    private static final int MAX_DEPTH = 32;
+
+    private static final float MORTON_MAX = 1023.0f;
+
+    private float[] itemBounds = new float[6 * 256];
+
+    private long[] itemHashes = new long[256];
+
+    private int[] itemOrder = new int[256];
+
+    private int itemCount;
+
+    private float[] nodeBounds = new float[6 * 512];
+
+    private int[] nodeStarts = new int[512];
+
+    private int[] nodeCounts = new int[512];
+
+    private int nodeCount;
+
+    private final RadixSorter sorter = new RadixSorter();
+
+    private final int[] stack = new int[MAX_DEPTH * 2];
+
+    private float[] hitDistances = new float[16];
+
+    private long[] hitHashes = new long[16];
+
+    private int hitCount;
+
+    public void clear() {
+        itemCount = 0;
+        nodeCount = 0;
+        hitCount = 0;
+    }
+
+    public void add(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, long hash) {
+        if (itemCount == itemHashes.length) {
+            int capacity = itemHashes.length * 2;
+            itemBounds = Arrays.copyOf(itemBounds, capacity * 6);
+            itemHashes = Arrays.copyOf(itemHashes, capacity);
+            itemOrder = new int[capacity];
+        }
+        int offset = itemCount * 6;
+        itemBounds[offset] = minX;
+        itemBounds[offset + 1] = minY;
+        itemBounds[offset + 2] = minZ;
+        itemBounds[offset + 3] = maxX;
+        itemBounds[offset + 4] = maxY;
+        itemBounds[offset + 5] = maxZ;
+        itemHashes[itemCount] = hash;
+        itemCount++;
+    }
+
+    public void build() {
+        nodeCount = 0;
+        if (itemCount == 0) {
+            return;
+        }
+        if (nodeStarts.length < itemCount * 2) {
+            int capacity = itemCount * 2;
+            nodeBounds = new float[capacity * 6];
+            nodeStarts = new int[capacity];
+            nodeCounts = new int[capacity];
+        }
+
+        // Centers are kept doubled, which orders them the same without the multiply
+        float minX = Float.POSITIVE_INFINITY;
+        float minY = Float.POSITIVE_INFINITY;
+        float minZ = Float.POSITIVE_INFINITY;
+        float maxX = Float.NEGATIVE_INFINITY;
+        float maxY = Float.NEGATIVE_INFINITY;
+        float maxZ = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < itemCount; i++) {
+            int offset = i * 6;
+            float centerX = itemBounds[offset] + itemBounds[offset + 3];
+            float centerY = itemBounds[offset + 1] + itemBounds[offset + 4];
+            float centerZ = itemBounds[offset + 2] + itemBounds[offset + 5];
+            // Plain comparisons, as Math.min and Math.max also have to order NaN and signed zeros
+            if (centerX < minX) {
+                minX = centerX;
+            }
+            if (centerY < minY) {
+                minY = centerY;
+            }
+            if (centerZ < minZ) {
+                minZ = centerZ;
+            }
+            if (centerX > maxX) {
+                maxX = centerX;
+            }
+            if (centerY > maxY) {
+                maxY = centerY;
+            }
+            if (centerZ > maxZ) {
+                maxZ = centerZ;
+            }
+        }
+
+        // Sorting along a Morton curve puts nearby models next to each other, so halving the sorted order
+        // splits space without partitioning at every level
+        float scaleX = MORTON_MAX / Math.max(maxX - minX, 1.0f);
+        float scaleY = MORTON_MAX / Math.max(maxY - minY, 1.0f);
+        float scaleZ = MORTON_MAX / Math.max(maxZ - minZ, 1.0f);
+        sorter.clear();
+        for (int i = 0; i < itemCount; i++) {
+            int offset = i * 6;
+            int mortonX = (int) ((itemBounds[offset] + itemBounds[offset + 3] - minX) * scaleX);
+            int mortonY = (int) ((itemBounds[offset + 1] + itemBounds[offset + 4] - minY) * scaleY);
+            int mortonZ = (int) ((itemBounds[offset + 2] + itemBounds[offset + 5] - minZ) * scaleZ);
+            sorter.add(spreadBits(mortonX) | spreadBits(mortonY) << 1 | spreadBits(mortonZ) << 2, i);
+        }
+        sorter.sort();
+        for (int i = 0; i < itemCount; i++) {
+            itemOrder[i] = sorter.getValue(i);
+        }
+
+        build(allocateNode(), 0, itemCount);
+    }
+
+    private static int spreadBits(int value) {
+        value = (value | value << 16) & 0x030000FF;
+        value = (value | value << 8) & 0x0300F00F;
+        value = (value | value << 4) & 0x030C30C3;
+        return (value | value << 2) & 0x09249249;
+    }
+
+    private int allocateNode() {
+        return nodeCount++;
+    }
+
+    private void build(int node, int start, int count) {
+        if (count <= LEAF_SIZE) {
+            nodeStarts[node] = start;
+            nodeCounts[node] = count;
+            setLeafBounds(node, start, count);
+            return;
+        }
+
+        int leftCount = count / 2;
+        int left = allocateNode();
+        int right = allocateNode();
+        nodeStarts[node] = left;
+        nodeCounts[node] = 0;
+        build(left, start, leftCount);
+        build(right, start + leftCount, count - leftCount);
+
+        int offset = node * 6;
+        int leftOffset = left * 6;
+        int rightOffset = right * 6;
+        for (int i = 0; i < 3; i++) {
+            nodeBounds[offset + i] = Math.min(nodeBounds[leftOffset + i], nodeBounds[rightOffset + i]);
+            nodeBounds[offset + i + 3] = Math.max(nodeBounds[leftOffset + i + 3], nodeBounds[rightOffset + i + 3]);
+        }
+    }
+
+    private void setLeafBounds(int node, int start, int count) {
+        int offset = node * 6;
+        System.arraycopy(itemBounds, itemOrder[start] * 6, nodeBounds, offset, 6);
+        for (int i = start + 1; i < start + count; i++) {
+            int itemOffset = itemOrder[i] * 6;
+            for (int j = 0; j < 3; j++) {
+                nodeBounds[offset + j] = Math.min(nodeBounds[offset + j], itemBounds[itemOffset + j]);
+                nodeBounds[offset + j + 3] = Math.max(nodeBounds[offset + j + 3], itemBounds[itemOffset + j + 3]);
+            }
+        }
+    }
+
+    public int raycast(float originX, float originY, float originZ, float directionX, float directionY,
+                       float directionZ) {
+        hitCount = 0;
+        if (nodeCount == 0) {
+            return 0;
+        }
+        float inverseX = 1.0f / directionX;
+        float inverseY = 1.0f / directionY;
+        float inverseZ = 1.0f / directionZ;
+
+        int stackSize = 0;
+        stack[stackSize++] = 0;
+        while (stackSize > 0) {
+            int node = stack[--stackSize];
+            if (intersect(nodeBounds, node * 6, originX, originY, originZ, inverseX, inverseY, inverseZ) < 0.0f) {
+                continue;
+            }
+            int count = nodeCounts[node];
+            if (count == 0) {
+                stack[stackSize++] = nodeStarts[node];
+                stack[stackSize++] = nodeStarts[node] + 1;
+                continue;
+            }
+            int start = nodeStarts[node];
+            for (int i = start; i < start + count; i++) {
+                int item = itemOrder[i];
+                float distance = intersect(itemBounds, item * 6, originX, originY, originZ, inverseX, inverseY,
+                        inverseZ);
+                if (distance >= 0.0f) {
+                    addHit(distance, itemHashes[item]);
+                }
+            }
+        }
+        return hitCount;
+    }
+
+    private static float intersect(float[] bounds, int offset, float originX, float originY, float originZ,
+                                   float inverseX, float inverseY, float inverseZ) {
+        return intersect(bounds[offset], bounds[offset + 1], bounds[offset + 2], bounds[offset + 3],
+                bounds[offset + 4], bounds[offset + 5], originX, originY, originZ, inverseX, inverseY, inverseZ);
+    }
+
+    // Returns the distance along the ray at which it enters the box, or -1 if it misses
+    static float intersect(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, float originX,
+                           float originY, float originZ, float inverseX, float inverseY, float inverseZ) {
+        float nearX = (minX - originX) * inverseX;
+        float farX = (maxX - originX) * inverseX;
+        float nearY = (minY - originY) * inverseY;
+        float farY = (maxY - originY) * inverseY;
+        float nearZ = (minZ - originZ) * inverseZ;
+        float farZ = (maxZ - originZ) * inverseZ;
+        float near = Math.max(Math.max(Math.min(nearX, farX), Math.min(nearY, farY)), Math.min(nearZ, farZ));
+        float far = Math.min(Math.min(Math.max(nearX, farX), Math.max(nearY, farY)), Math.max(nearZ, farZ));
+        if (far < Math.max(near, 0.0f)) {
+            return -1.0f;
+        }
+        return Math.max(near, 0.0f);
+    }
+
+    private void addHit(float distance, long hash) {
+        if (hitCount == hitHashes.length) {
+            hitDistances = Arrays.copyOf(hitDistances, hitCount * 2);
+            hitHashes = Arrays.copyOf(hitHashes, hitCount * 2);
+        }
+        // Hits are few, so an insertion sort keeps them nearest first
+        int i = hitCount++;
+        while (i > 0 && hitDistances[i - 1] > distance) {
+            hitDistances[i] = hitDistances[i - 1];
+            hitHashes[i] = hitHashes[i - 1];
+            i--;
+        }
+        hitDistances[i] = distance;
+        hitHashes[i] = hash;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public int getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    public long getHitHash(int index) {
+        return hitHashes[index];
+    }
+
+    public float getHitDistance(int index) {
+        return hitDistances[index];
+    }
+}
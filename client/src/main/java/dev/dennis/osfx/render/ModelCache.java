@@ -0,0 +1,162 @@
+package dev.dennis.osfx.render;
+
+import dev.dennis.osfx.api.Model;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class ModelCache {
+    private static final int MAX_ENTRIES = 32768;
+
+    private static final int MAX_CHANGE_COUNT = 4;
+
+    private final int vertexStride;
+
+    private final long gpuByteBudget;
+
+    private final long uploadByteBudget;
+
+    private final Map<Model, ModelCacheEntry> entries;
+
+    private long frame;
+
+    private long gpuBytes;
+
+    private long frameUploadBytes;
+
+    private int paletteStamp;
+
+    private volatile long hits;
+
+    private volatile long misses;
+
+    private volatile long evictions;
+
+    public ModelCache(int vertexStride, long gpuByteBudget, long uploadByteBudget) {
+        this.vertexStride = vertexStride;
+        this.gpuByteBudget = gpuByteBudget;
+        this.uploadByteBudget = uploadByteBudget;
+        this.entries = new LinkedHashMap<>(1024, 0.75f, true);
+    }
+
+    public void beginFrame(int paletteStamp, FramePacket packet) {
+        frame++;
+        frameUploadBytes = 0;
+
+        if (paletteStamp != this.paletteStamp) {
+            clear(packet);
+            this.paletteStamp = paletteStamp;
+        }
+    }
+
+    public ModelCacheEntry get(Model model, long stamp, FramePacket packet) {
+        ModelCacheEntry entry = entries.get(model);
+        if (entry != null && entry.getChangeCount() >= MAX_CHANGE_COUNT) {
+            entry.setLastUsedFrame(frame);
+            misses++;
+            return null;
+        }
+
+        if (entry != null && entry.getStamp() != stamp) {
+            entries.remove(model);
+            release(entry, packet);
+
+            ModelCacheEntry changedEntry = createEntry(model, stamp);
+            changedEntry.setChangeCount(entry.getChangeCount() + 1);
+            misses++;
+            return null;
+        }
+        if (entry == null) {
+            createEntry(model, stamp);
+            trim(packet);
+            misses++;
+            return null;
+        }
+
+        entry.setLastUsedFrame(frame);
+        if (!entry.isUploaded()) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry;
+    }
+
+    public ModelCacheEntry admit(Model model, FramePacket packet) {
+        ModelCacheEntry entry = entries.get(model);
+        // Only models that survive unchanged into a later frame are worth a persistent buffer
+        if (entry == null || entry.isUploaded() || entry.getFirstSeenFrame() == frame
+                || entry.getChangeCount() >= MAX_CHANGE_COUNT
+                || frameUploadBytes + entry.getByteCount() > uploadByteBudget
+                || entry.getByteCount() > gpuByteBudget) {
+            return null;
+        }
+        entry.setUploaded(true);
+        packet.getModelCacheUploads().add(entry);
+
+        frameUploadBytes += entry.getByteCount();
+        gpuBytes += entry.getByteCount();
+        trim(packet);
+        return entry;
+    }
+
+    public void clear(FramePacket packet) {
+        for (ModelCacheEntry entry : entries.values()) {
+            release(entry, packet);
+        }
+        entries.clear();
+    }
+
+    private ModelCacheEntry createEntry(Model model, long stamp) {
+        int vertexCount = model.getTriangleCount() * 3;
+        ModelCacheEntry entry = new ModelCacheEntry(stamp, vertexCount, vertexCount * vertexStride);
+        entry.setFirstSeenFrame(frame);
+        entry.setLastUsedFrame(frame);
+        entries.put(model, entry);
+        return entry;
+    }
+
+    private void trim(FramePacket packet) {
+        Iterator<ModelCacheEntry> iterator = entries.values().iterator();
+        while ((gpuBytes > gpuByteBudget || entries.size() > MAX_ENTRIES) && iterator.hasNext()) {
+            ModelCacheEntry entry = iterator.next();
+            // Entries are in access order, so everything after this one was used this frame as well
+            if (entry.getLastUsedFrame() == frame) {
+                break;
+            }
+            iterator.remove();
+            if (entry.isUploaded()) {
+                evictions++;
+            }
+            release(entry, packet);
+        }
+    }
+
+    private void release(ModelCacheEntry entry, FramePacket packet) {
+        if (entry.isUploaded()) {
+            gpuBytes -= entry.getByteCount();
+            packet.getGeometryReleases().add(entry);
+        }
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getGpuBytes() {
+        return gpuBytes;
+    }
+
+    public int getEntryCount() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,90 @@
+package dev.dennis.osfx.render;
+
+public class ModelCacheEntry implements StaticGeometry {
+    private final long stamp;
+
+    private final int vertexCount;
+
+    private final int byteCount;
+
+    private long lastUsedFrame;
+
+    private long firstSeenFrame;
+
+    private int changeCount;
+
+    private boolean uploaded;
+
+    private int uploadVertexStart;
+
+    private volatile short vertexBufferId;
+
+    public ModelCacheEntry(long stamp, int vertexCount, int byteCount) {
+        this.stamp = stamp;
+        this.vertexCount = vertexCount;
+        this.byteCount = byteCount;
+        this.vertexBufferId = -1;
+    }
+
+    public long getStamp() {
+        return stamp;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getByteCount() {
+        return byteCount;
+    }
+
+    public long getLastUsedFrame() {
+        return lastUsedFrame;
+    }
+
+    public void setLastUsedFrame(long lastUsedFrame) {
+        this.lastUsedFrame = lastUsedFrame;
+    }
+
+    public long getFirstSeenFrame() {
+        return firstSeenFrame;
+    }
+
+    public void setFirstSeenFrame(long firstSeenFrame) {
+        this.firstSeenFrame = firstSeenFrame;
+    }
+
+    public int getChangeCount() {
+        return changeCount;
+    }
+
+    public void setChangeCount(int changeCount) {
+        this.changeCount = changeCount;
+    }
+
+    public boolean isUploaded() {
+        return uploaded;
+    }
+
+    public void setUploaded(boolean uploaded) {
+        this.uploaded = uploaded;
+    }
+
+    public int getUploadVertexStart() {
+        return uploadVertexStart;
+    }
+
+    public void setUploadVertexStart(int uploadVertexStart) {
+        this.uploadVertexStart = uploadVertexStart;
+    }
+
+    @Override
+    public short getVertexBufferId() {
+        return vertexBufferId;
+    }
+
+    @Override
+    public void setVertexBufferId(short vertexBufferId) {
+        this.vertexBufferId = vertexBufferId;
+    }
+}
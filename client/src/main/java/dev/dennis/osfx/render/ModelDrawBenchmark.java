@@ -0,0 +1,69 @@
+package dev.dennis.osfx.render;
+
+public class ModelDrawBenchmark {
+    private static final int BENCHMARK_FRAMES = 300;
+
+    private static final double NANOS_TO_MILLIS = 1.0 / 1_000_000.0;
+
+    private static final double STATS_SMOOTHING = 0.05;
+
+    private int recordedFrames;
+
+    private long softwareNanos;
+
+    private int softwareFrames;
+
+    private long gpuNanos;
+
+    private int gpuFrames;
+
+    private volatile double softwareRecordMillis;
+
+    private volatile double gpuRecordMillis;
+
+    public boolean nextFrameUsesGpu() {
+        return recordedFrames++ / BENCHMARK_FRAMES % 2 == 1;
+    }
+
+    public void retire(FramePacket packet) {
+        long recordTime = packet.getRecordEnd() - packet.getRecordStart();
+        if (packet.isGpuModels()) {
+            gpuNanos += recordTime;
+            gpuFrames++;
+            gpuRecordMillis = smooth(gpuRecordMillis, recordTime * NANOS_TO_MILLIS);
+        } else {
+            softwareNanos += recordTime;
+            softwareFrames++;
+            softwareRecordMillis = smooth(softwareRecordMillis, recordTime * NANOS_TO_MILLIS);
+        }
+        if (softwareFrames >= BENCHMARK_FRAMES && gpuFrames >= BENCHMARK_FRAMES) {
+            printBenchmark();
+        }
+    }
+
+    private void printBenchmark() {
+        double softwareMillis = softwareNanos * NANOS_TO_MILLIS / softwareFrames;
+        double gpuMillis = gpuNanos * NANOS_TO_MILLIS / gpuFrames;
+        System.out.println(String.format("Model drawing: software %.3f ms, GPU only %.3f ms (%.2fx) client frame time",
+                softwareMillis, gpuMillis, softwareMillis / Math.max(gpuMillis, 0.001)));
+        softwareNanos = 0;
+        softwareFrames = 0;
+        gpuNanos = 0;
+        gpuFrames = 0;
+    }
+
+    private static double smooth(double average, double value) {
+        if (average == 0.0) {
+            return value;
+        }
+        return average + (value - average) * STATS_SMOOTHING;
+    }
+
+    public double getSoftwareRecordMillis() {
+        return softwareRecordMillis;
+    }
+
+    public double getGpuRecordMillis() {
+        return gpuRecordMillis;
+    }
+}
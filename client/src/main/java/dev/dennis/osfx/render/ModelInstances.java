@@ -0,0 +1,55 @@
+package dev.dennis.osfx.render;
+
+public class ModelInstances {
+    public static final int INSTANCE_STRIDE = 16;
+
+    private static final float RS_TO_RADIANS = (float) (Math.PI * 2.0 / 2048.0);
+
+    private long stamp;
+
+    private float[] data = new float[64];
+
+    private int count;
+
+    private int instanceStart;
+
+    public void reset(long stamp) {
+        this.stamp = stamp;
+        this.count = 0;
+        this.instanceStart = -1;
+    }
+
+    public void add(int rotation, int x, int y, int z) {
+        int offset = count * 4;
+        if (offset == data.length) {
+            float[] newData = new float[data.length * 2];
+            System.arraycopy(data, 0, newData, 0, data.length);
+            data = newData;
+        }
+        data[offset] = x;
+        data[offset + 1] = y;
+        data[offset + 2] = z;
+        data[offset + 3] = rotation * RS_TO_RADIANS;
+        count++;
+    }
+
+    public long getStamp() {
+        return stamp;
+    }
+
+    public float[] getData() {
+        return data;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getInstanceStart() {
+        return instanceStart;
+    }
+
+    public void setInstanceStart(int instanceStart) {
+        this.instanceStart = instanceStart;
+    }
+}
@@ -0,0 +1,218 @@
+package dev.dennis.osfx.render;
+
+import dev.dennis.osfx.api.SceneTileModel;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+import org.joml.Vector4f;
+
+public class ModelPicker {
+    private static final float MOUSE_MARGIN = 2.0f;
+
+    private static final double NANOS_TO_MILLIS = 1.0 / 1_000_000.0;
+
+    private static final double STATS_SMOOTHING = 0.05;
+
+    private static final long[] NO_HITS = new long[0];
+
+    private final Matrix4f viewProjection;
+
+    private final Matrix4f inverseViewProjection;
+
+    private final ModelBvh bvh;
+
+    private final Vector4f corner;
+
+    private final Vector3f rayOrigin;
+
+    private final Vector3f rayEnd;
+
+    private boolean mouseInViewport;
+
+    private float mouseNdcX;
+
+    private float mouseNdcY;
+
+    private float marginX;
+
+    private float marginY;
+
+    private float inverseRayX;
+
+    private float inverseRayY;
+
+    private float inverseRayZ;
+
+    private int pickedModels;
+
+    private int skippedModels;
+
+    private volatile int lastPickedModels;
+
+    private volatile int lastSkippedModels;
+
+    private volatile int lastBvhModels;
+
+    private volatile int lastHitCount;
+
+    private volatile double pickMillis;
+
+    public ModelPicker() {
+        this.viewProjection = new Matrix4f();
+        this.inverseViewProjection = new Matrix4f();
+        this.bvh = new ModelBvh();
+        this.corner = new Vector4f();
+        this.rayOrigin = new Vector3f();
+        this.rayEnd = new Vector3f();
+    }
+
+    public void beginFrame(Matrix4f viewProjection, int viewportWidth, int viewportHeight, int mouseX, int mouseY) {
+        this.viewProjection.set(viewProjection);
+        this.mouseInViewport = mouseX >= 0 && mouseY >= 0 && mouseX < viewportWidth && mouseY < viewportHeight;
+        this.mouseNdcX = (mouseX + 0.5f) * 2.0f / viewportWidth - 1.0f;
+        this.mouseNdcY = 1.0f - (mouseY + 0.5f) * 2.0f / viewportHeight;
+        this.marginX = MOUSE_MARGIN * 2.0f / viewportWidth;
+        this.marginY = MOUSE_MARGIN * 2.0f / viewportHeight;
+        bvh.clear();
+
+        // The ray runs from the mouse on the near plane to the mouse on the far plane
+        viewProjection.invert(inverseViewProjection);
+        inverseViewProjection.transformProject(mouseNdcX, mouseNdcY, -1.0f, rayOrigin);
+        inverseViewProjection.transformProject(mouseNdcX, mouseNdcY, 1.0f, rayEnd);
+        inverseRayX = 1.0f / (rayEnd.x - rayOrigin.x);
+        inverseRayY = 1.0f / (rayEnd.y - rayOrigin.y);
+        inverseRayZ = 1.0f / (rayEnd.z - rayOrigin.z);
+
+        lastPickedModels = pickedModels;
+        lastSkippedModels = skippedModels;
+        pickedModels = 0;
+        skippedModels = 0;
+    }
+
+    // Returns whether the model's projected bounds may contain the mouse
+    public boolean addModel(ModelBounds bounds, int x, int y, int z, long hash) {
+        if (bounds.isEmpty()) {
+            return count(false);
+        }
+        float radius = bounds.getRadius();
+        float minY = y + bounds.getMinY();
+        float maxY = y + bounds.getMaxY();
+        bvh.add(x - radius, minY, z - radius, x + radius, maxY, z + radius, hash);
+        if (!mouseInViewport) {
+            return count(false);
+        }
+
+        float minNdcX = Float.POSITIVE_INFINITY;
+        float minNdcY = Float.POSITIVE_INFINITY;
+        float maxNdcX = Float.NEGATIVE_INFINITY;
+        float maxNdcY = Float.NEGATIVE_INFINITY;
+        for (int i = 0; i < 8; i++) {
+            corner.set((i & 1) == 0 ? x - radius : x + radius, (i & 2) == 0 ? minY : maxY,
+                    (i & 4) == 0 ? z - radius : z + radius, 1.0f);
+            viewProjection.transform(corner);
+            if (corner.w <= 0.0f) {
+                // The bounds reach behind the camera, so their projection can cover any part of the screen
+                return count(true);
+            }
+            float ndcX = corner.x / corner.w;
+            float ndcY = corner.y / corner.w;
+            minNdcX = Math.min(minNdcX, ndcX);
+            minNdcY = Math.min(minNdcY, ndcY);
+            maxNdcX = Math.max(maxNdcX, ndcX);
+            maxNdcY = Math.max(maxNdcY, ndcY);
+        }
+        return count(mouseNdcX >= minNdcX - marginX && mouseNdcX <= maxNdcX + marginX
+                && mouseNdcY >= minNdcY - marginY && mouseNdcY <= maxNdcY + marginY);
+    }
+
+    // Tiles are tested against the mouse ray directly, as there are far more of them than models
+    public boolean mayContainMouse(float minX, float minY, float minZ, float maxX, float maxY, float maxZ) {
+        return mouseInViewport && ModelBvh.intersect(minX - MOUSE_MARGIN, minY - MOUSE_MARGIN, minZ - MOUSE_MARGIN,
+                maxX + MOUSE_MARGIN, maxY + MOUSE_MARGIN, maxZ + MOUSE_MARGIN, rayOrigin.x, rayOrigin.y,
+                rayOrigin.z, inverseRayX, inverseRayY, inverseRayZ) >= 0.0f;
+    }
+
+    public boolean mayContainMouse(SceneTileModel tile, int cameraX, int cameraY, int cameraZ) {
+        if (!mouseInViewport) {
+            return false;
+        }
+        int[] verticesX = tile.getVerticesX();
+        int[] verticesY = tile.getVerticesY();
+        int[] verticesZ = tile.getVerticesZ();
+
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+        for (int i = 0; i < verticesX.length; i++) {
+            minX = Math.min(minX, verticesX[i]);
+            minY = Math.min(minY, verticesY[i]);
+            minZ = Math.min(minZ, verticesZ[i]);
+            maxX = Math.max(maxX, verticesX[i]);
+            maxY = Math.max(maxY, verticesY[i]);
+            maxZ = Math.max(maxZ, verticesZ[i]);
+        }
+        return minX <= maxX && mayContainMouse(minX - cameraX, minY - cameraZ, minZ - cameraY, maxX - cameraX,
+                maxY - cameraZ, maxZ - cameraY);
+    }
+
+    // Returns the hashes of the models under the mouse, nearest first
+    public long[] pick() {
+        long start = System.nanoTime();
+        int hitCount = 0;
+        if (mouseInViewport) {
+            bvh.build();
+            hitCount = bvh.raycast(rayOrigin.x, rayOrigin.y, rayOrigin.z, rayEnd.x - rayOrigin.x,
+                    rayEnd.y - rayOrigin.y, rayEnd.z - rayOrigin.z);
+        }
+        long[] hits = NO_HITS;
+        if (hitCount > 0) {
+            hits = new long[hitCount];
+            for (int i = 0; i < hitCount; i++) {
+                hits[i] = bvh.getHitHash(i);
+            }
+        }
+
+        lastBvhModels = bvh.getItemCount();
+        lastHitCount = hitCount;
+        pickMillis = smooth(pickMillis, (System.nanoTime() - start) * NANOS_TO_MILLIS);
+        return hits;
+    }
+
+    private boolean count(boolean picked) {
+        if (picked) {
+            pickedModels++;
+        } else {
+            skippedModels++;
+        }
+        return picked;
+    }
+
+    private static double smooth(double average, double value) {
+        if (average == 0.0) {
+            return value;
+        }
+        return average + (value - average) * STATS_SMOOTHING;
+    }
+
+    public int getPickedModels() {
+        return lastPickedModels;
+    }
+
+    public int getSkippedModels() {
+        return lastSkippedModels;
+    }
+
+    public int getBvhModels() {
+        return lastBvhModels;
+    }
+
+    public int getHitCount() {
+        return lastHitCount;
+    }
+
+    public double getPickMillis() {
+        return pickMillis;
+    }
+}
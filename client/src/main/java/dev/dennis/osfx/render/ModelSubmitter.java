@@ -0,0 +1,334 @@
+package dev.dennis.osfx.render;
+
+import org.joml.Matrix4f;
+import org.lwjgl.bgfx.BGFXInstanceDataBuffer;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.lwjgl.bgfx.BGFX.*;
+
+public class ModelSubmitter {
+    public static final int MAX_WORKER_COUNT = 7;
+
+    private static final int MIN_PARALLEL_COMMANDS = 256;
+
+    private static final int BENCHMARK_FRAMES = 300;
+
+    private static final float RS_TO_RADIANS = (float) (Math.PI * 2.0 / 2048.0);
+
+    private static final double STATS_SMOOTHING = 0.05;
+
+    private static final double NANOS_TO_MILLIS = 1.0 / 1_000_000.0;
+
+    private final int workerCount;
+
+    private final boolean benchmark;
+
+    private final ExecutorService executor;
+
+    private final Matrix4f[] matrices;
+
+    private final FloatBuffer[] matrixBufs;
+
+    private final List<Future<?>> futures;
+
+    private final BGFXInstanceDataBuffer instanceDataBuffer;
+
+    private short instancedProgram;
+
+    private long state;
+
+    private short paletteUniform;
+
+    private short paletteTextureId;
+
+    private boolean instanceDataAllocated;
+
+    private long frameCount;
+
+    private long benchmarkSerialNanos;
+
+    private long benchmarkParallelNanos;
+
+    private long benchmarkCommands;
+
+    private volatile double serialSubmitMillis;
+
+    private volatile double parallelSubmitMillis;
+
+    private volatile int instancedDraws;
+
+    private volatile int instanceCount;
+
+    public static int getDefaultWorkerCount() {
+        return Math.max(1, Math.min(MAX_WORKER_COUNT, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    public ModelSubmitter(int workerCount, boolean benchmark) {
+        this.workerCount = Math.max(0, Math.min(MAX_WORKER_COUNT, workerCount));
+        this.benchmark = benchmark && this.workerCount > 0;
+        if (this.workerCount > 0) {
+            AtomicInteger threadId = new AtomicInteger();
+            this.executor = Executors.newFixedThreadPool(this.workerCount, runnable -> {
+                Thread thread = new Thread(runnable, "osfx-submit-" + threadId.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.executor = null;
+        }
+        // The last slot belongs to the render thread's own encoder
+        this.matrices = new Matrix4f[this.workerCount + 1];
+        this.matrixBufs = new FloatBuffer[this.workerCount + 1];
+        for (int i = 0; i < matrices.length; i++) {
+            matrices[i] = new Matrix4f();
+            matrixBufs[i] = MemoryUtil.memAllocFloat(16);
+        }
+        this.futures = new ArrayList<>(this.workerCount);
+        this.instanceDataBuffer = BGFXInstanceDataBuffer.calloc();
+        this.instancedProgram = BGFX_INVALID_HANDLE;
+        this.state = BGFX_STATE_DEFAULT | BGFX_STATE_BLEND_ALPHA;
+        this.paletteTextureId = BGFX_INVALID_HANDLE;
+    }
+
+    public void submit(long encoder, List<RenderModelCommand> commands, VertexArena vertexArena, short vertexBufferId,
+                       short shortIndexBufferId, short wideIndexBufferId, short textureId, int view, short program) {
+        long start = System.nanoTime();
+
+        allocateInstanceData(commands);
+
+        boolean parallel = workerCount > 0 && commands.size() >= MIN_PARALLEL_COMMANDS;
+        if (benchmark) {
+            parallel = frameCount / BENCHMARK_FRAMES % 2 == 1;
+        }
+
+        if (parallel) {
+            submitParallel(commands, vertexArena, vertexBufferId, shortIndexBufferId, wideIndexBufferId, textureId,
+                    view, program);
+        } else {
+            submitRange(encoder, workerCount, commands, 0, commands.size(), vertexArena, vertexBufferId,
+                    shortIndexBufferId, wideIndexBufferId, textureId, view, program);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        if (parallel) {
+            parallelSubmitMillis = smooth(parallelSubmitMillis, elapsed * NANOS_TO_MILLIS);
+        } else {
+            serialSubmitMillis = smooth(serialSubmitMillis, elapsed * NANOS_TO_MILLIS);
+        }
+
+        if (benchmark) {
+            if (parallel) {
+                benchmarkParallelNanos += elapsed;
+            } else {
+                benchmarkSerialNanos += elapsed;
+            }
+            benchmarkCommands += commands.size();
+            if (++frameCount % (BENCHMARK_FRAMES * 2) == 0) {
+                printBenchmark();
+            }
+        }
+    }
+
+    private void allocateInstanceData(List<RenderModelCommand> commands) {
+        instanceDataAllocated = false;
+
+        int totalInstances = 0;
+        int instancedDraws = 0;
+        for (RenderModelCommand command : commands) {
+            ModelInstances instances = command.getInstances();
+            if (instances != null && instances.getCount() > 1) {
+                totalInstances += instances.getCount();
+                instancedDraws++;
+            }
+        }
+        this.instancedDraws = instancedDraws;
+        this.instanceCount = totalInstances;
+
+        // One allocation for the whole frame, since workers can't safely race each other for the remaining space
+        if (instancedProgram == BGFX_INVALID_HANDLE || totalInstances == 0
+                || bgfx_get_avail_instance_data_buffer(totalInstances, ModelInstances.INSTANCE_STRIDE)
+                < totalInstances) {
+            return;
+        }
+        bgfx_alloc_instance_data_buffer(instanceDataBuffer, totalInstances, ModelInstances.INSTANCE_STRIDE);
+
+        FloatBuffer data = instanceDataBuffer.data().asFloatBuffer();
+        int instanceStart = 0;
+        for (RenderModelCommand command : commands) {
+            ModelInstances instances = command.getInstances();
+            if (instances != null && instances.getCount() > 1) {
+                data.put(instances.getData(), 0, instances.getCount() * 4);
+                instances.setInstanceStart(instanceStart);
+                instanceStart += instances.getCount();
+            }
+        }
+        instanceDataAllocated = true;
+    }
+
+    private void submitParallel(List<RenderModelCommand> commands, VertexArena vertexArena, short vertexBufferId,
+                                short shortIndexBufferId, short wideIndexBufferId, short textureId, int view,
+                                short program) {
+        int chunkSize = (commands.size() + workerCount - 1) / workerCount;
+        for (int i = 0; i < workerCount; i++) {
+            int worker = i;
+            int from = i * chunkSize;
+            int to = Math.min(commands.size(), from + chunkSize);
+            if (from >= to) {
+                break;
+            }
+            futures.add(executor.submit(() -> {
+                long encoder = bgfx_encoder_begin(true);
+                submitRange(encoder, worker, commands, from, to, vertexArena, vertexBufferId, shortIndexBufferId,
+                        wideIndexBufferId, textureId, view, program);
+                bgfx_encoder_end(encoder);
+            }));
+        }
+        try {
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException("Failed submitting model commands", e);
+        } finally {
+            futures.clear();
+        }
+    }
+
+    private void submitRange(long encoder, int worker, List<RenderModelCommand> commands, int from, int to,
+                             VertexArena vertexArena, short vertexBufferId, short shortIndexBufferId,
+                             short wideIndexBufferId, short textureId, int view, short program) {
+        Matrix4f matrix = matrices[worker];
+        FloatBuffer matrixBuf = matrixBufs[worker];
+        for (int i = from; i < to; i++) {
+            RenderModelCommand command = commands.get(i);
+            if (command.getVertexCount() == 0) {
+                continue;
+            }
+
+            ModelInstances instances = command.getInstances();
+            if (instances == null || instances.getCount() <= 1) {
+                matrix.identity().translate(command.getX(), command.getY(), command.getZ())
+                        .rotateY(command.getRotation() * RS_TO_RADIANS);
+                bgfx_encoder_set_transform(encoder, matrix.get(matrixBuf));
+                submitGeometry(encoder, command, vertexArena, vertexBufferId, shortIndexBufferId, wideIndexBufferId,
+                        textureId, view, program);
+            } else if (instanceDataAllocated) {
+                bgfx_encoder_set_instance_data_buffer(encoder, instanceDataBuffer, instances.getInstanceStart(),
+                        instances.getCount());
+                submitGeometry(encoder, command, vertexArena, vertexBufferId, shortIndexBufferId, wideIndexBufferId,
+                        textureId, view, instancedProgram);
+            } else {
+                float[] data = instances.getData();
+                for (int instance = 0; instance < instances.getCount(); instance++) {
+                    int offset = instance * 4;
+                    matrix.identity().translate(data[offset], data[offset + 1], data[offset + 2])
+                            .rotateY(data[offset + 3]);
+                    bgfx_encoder_set_transform(encoder, matrix.get(matrixBuf));
+                    submitGeometry(encoder, command, vertexArena, vertexBufferId, shortIndexBufferId,
+                            wideIndexBufferId, textureId, view, program);
+                }
+            }
+        }
+    }
+
+    private void submitGeometry(long encoder, RenderModelCommand command, VertexArena vertexArena,
+                                short vertexBufferId, short shortIndexBufferId, short wideIndexBufferId,
+                                short textureId, int view, short program) {
+        StaticGeometry geometry = command.getGeometry();
+        VertexJob job = command.getJob();
+        if (geometry != null) {
+            bgfx_encoder_set_vertex_buffer(encoder, 0, geometry.getVertexBufferId(), command.getVertexStart(),
+                    command.getVertexCount(), BGFX_INVALID_HANDLE);
+        } else if (job != null && job.isIndexed()) {
+            // The start vertex acts as the base vertex, so job indices stay relative to their own vertices
+            bgfx_encoder_set_dynamic_vertex_buffer(encoder, 0, vertexBufferId,
+                    vertexArena.getUploadVertexStart(job.getPackedVertexStart()), job.getPackedVertexCount(),
+                    BGFX_INVALID_HANDLE);
+            bgfx_encoder_set_index_buffer(encoder, job.isWideIndices() ? wideIndexBufferId : shortIndexBufferId,
+                    job.getIndexStart(), job.getVertexCount());
+        } else {
+            int vertexStart = job != null ? job.getPackedVertexStart() : command.getVertexStart();
+            bgfx_encoder_set_dynamic_vertex_buffer(encoder, 0, vertexBufferId,
+                    vertexArena.getUploadVertexStart(vertexStart), command.getVertexCount(), BGFX_INVALID_HANDLE);
+        }
+
+        bgfx_encoder_set_state(encoder, state, 0);
+        bgfx_encoder_set_texture(encoder, 0, (short) 0, textureId, BGFX_SAMPLER_U_CLAMP);
+        if (paletteTextureId != BGFX_INVALID_HANDLE) {
+            bgfx_encoder_set_texture(encoder, 1, paletteUniform, paletteTextureId,
+                    BGFX_SAMPLER_POINT | BGFX_SAMPLER_UVW_CLAMP);
+        }
+
+        bgfx_encoder_submit(encoder, view, program, 0, false);
+    }
+
+    private void printBenchmark() {
+        double serialMillis = benchmarkSerialNanos * NANOS_TO_MILLIS / BENCHMARK_FRAMES;
+        double parallelMillis = benchmarkParallelNanos * NANOS_TO_MILLIS / BENCHMARK_FRAMES;
+        System.out.println(String.format("Model submit: single encoder %.3f ms, %d encoders %.3f ms (%.2fx), "
+                        + "%d commands per frame", serialMillis, workerCount, parallelMillis,
+                serialMillis / Math.max(parallelMillis, 0.001), benchmarkCommands / (BENCHMARK_FRAMES * 2)));
+        benchmarkSerialNanos = 0;
+        benchmarkParallelNanos = 0;
+        benchmarkCommands = 0;
+    }
+
+    public void free() {
+        instanceDataBuffer.free();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        for (FloatBuffer matrixBuf : matrixBufs) {
+            MemoryUtil.memFree(matrixBuf);
+        }
+    }
+
+    private static double smooth(double average, double value) {
+        if (average == 0.0) {
+            return value;
+        }
+        return average + (value - average) * STATS_SMOOTHING;
+    }
+
+    public void setInstancedProgram(short instancedProgram) {
+        this.instancedProgram = instancedProgram;
+    }
+
+    public void setState(long state) {
+        this.state = state;
+    }
+
+    public void setPalette(short paletteUniform, short paletteTextureId) {
+        this.paletteUniform = paletteUniform;
+        this.paletteTextureId = paletteTextureId;
+    }
+
+    public int getInstancedDraws() {
+        return instancedDraws;
+    }
+
+    public int getInstanceCount() {
+        return instanceCount;
+    }
+
+    public int getWorkerCount() {
+        return workerCount;
+    }
+
+    public double getSerialSubmitMillis() {
+        return serialSubmitMillis;
+    }
+
+    public double getParallelSubmitMillis() {
+        return parallelSubmitMillis;
+    }
+}
@@ -0,0 +1,289 @@
+package dev.dennis.osfx.render;
+
+import dev.dennis.osfx.api.Model;
+import org.joml.Matrix4fc;
+
+import java.nio.ByteBuffer;
+
+public class ModelVertexJob extends VertexJob {
+    private int[] verticesX;
+
+    private int[] verticesY;
+
+    private int[] verticesZ;
+
+    private byte[] triangleAlphas;
+
+    private int triangleCount;
+
+    private int[] indicesA;
+
+    private int[] indicesB;
+
+    private int[] indicesC;
+
+    private int[] colorsA;
+
+    private int[] colorsB;
+
+    private int[] colorsC;
+
+    private int[] texIndicesP;
+
+    private int[] texIndicesM;
+
+    private int[] texIndicesN;
+
+    private short[] triangleTextures;
+
+    private byte[] textureMapping;
+
+    private byte[] trianglePriorities;
+
+    private int[] colorPalette;
+
+    private int[] vertexCopyX;
+
+    private int[] vertexCopyY;
+
+    private int[] vertexCopyZ;
+
+    private byte[] alphaCopy;
+
+    private boolean splitTransparent;
+
+    private final float[] texCoordsU = new float[3];
+
+    private final float[] texCoordsV = new float[3];
+
+    public void set(Model model, int[] colorPalette, boolean copy) {
+        this.triangleCount = model.getTriangleCount();
+        this.indicesA = model.getIndicesA();
+        this.indicesB = model.getIndicesB();
+        this.indicesC = model.getIndicesC();
+        this.colorsA = model.getColorsA();
+        this.colorsB = model.getColorsB();
+        this.colorsC = model.getColorsC();
+        this.texIndicesP = model.getTextureIndicesP();
+        this.texIndicesM = model.getTextureIndicesM();
+        this.texIndicesN = model.getTextureIndicesN();
+        this.triangleTextures = model.getTriangleTextures();
+        this.textureMapping = model.getTextureMapping();
+        this.trianglePriorities = model.getTrianglePriorities();
+        this.splitTransparent = false;
+        this.colorPalette = colorPalette;
+
+        if (!copy) {
+            this.verticesX = model.getVerticesX();
+            this.verticesY = model.getVerticesY();
+            this.verticesZ = model.getVerticesZ();
+            this.triangleAlphas = model.getTriangleAlphas();
+            return;
+        }
+
+        // Animated models share their vertex and alpha arrays and transform them in place after drawing
+        int vertexCount = model.getVertexCount();
+        if (vertexCopyX == null || vertexCopyX.length < vertexCount) {
+            vertexCopyX = new int[vertexCount];
+            vertexCopyY = new int[vertexCount];
+            vertexCopyZ = new int[vertexCount];
+        }
+        System.arraycopy(model.getVerticesX(), 0, vertexCopyX, 0, vertexCount);
+        System.arraycopy(model.getVerticesY(), 0, vertexCopyY, 0, vertexCount);
+        System.arraycopy(model.getVerticesZ(), 0, vertexCopyZ, 0, vertexCount);
+        this.verticesX = vertexCopyX;
+        this.verticesY = vertexCopyY;
+        this.verticesZ = vertexCopyZ;
+
+        byte[] triangleAlphas = model.getTriangleAlphas();
+        if (triangleAlphas != null) {
+            if (alphaCopy == null || alphaCopy.length < triangleCount) {
+                alphaCopy = new byte[triangleCount];
+            }
+            System.arraycopy(triangleAlphas, 0, alphaCopy, 0, triangleCount);
+            this.triangleAlphas = alphaCopy;
+        } else {
+            this.triangleAlphas = null;
+        }
+    }
+
+    @Override
+    public int getVertexCount() {
+        return triangleCount * 3;
+    }
+
+    @Override
+    public void encode(ByteBuffer vertex, SceneVertexFormat format) {
+        for (int i = 0; i < triangleCount; i++) {
+            if (splitTransparent && isTransparent(i)) {
+                addDegenerateTriangle(vertex, format);
+                continue;
+            }
+            encodeTriangle(vertex, format, i, 0.0f, 1.0f, 0, 0, 0);
+        }
+    }
+
+    public void encodeTriangle(ByteBuffer vertex, SceneVertexFormat format, int i, float sin, float cos, int offsetX,
+                               int offsetY, int offsetZ) {
+        int colorA = colorsA[i];
+        int colorB = colorsB[i];
+        int colorC = colorsC[i];
+        int textureId = 0;
+        if (triangleTextures != null) {
+            textureId = triangleTextures[i] + 1;
+        }
+        int alpha = 0xFF;
+        if (triangleAlphas != null && textureId == 0) {
+            alpha -= triangleAlphas[i];
+        }
+        if (colorC == -1) {
+            colorC = colorB = colorA;
+        } else if (colorC == -2) {
+            addDegenerateTriangle(vertex, format);
+            return;
+        }
+
+        computeTexCoords(i);
+
+        float[] u = texCoordsU;
+        float[] v = texCoordsV;
+        putVertex(vertex, format, indicesA[i], sin, cos, offsetX, offsetY, offsetZ,
+                SceneVertexFormat.packColor(colorPalette, colorA, alpha), u[0], v[0], textureId);
+        putVertex(vertex, format, indicesB[i], sin, cos, offsetX, offsetY, offsetZ,
+                SceneVertexFormat.packColor(colorPalette, colorB, alpha), u[1], v[1], textureId);
+        putVertex(vertex, format, indicesC[i], sin, cos, offsetX, offsetY, offsetZ,
+                SceneVertexFormat.packColor(colorPalette, colorC, alpha), u[2], v[2], textureId);
+    }
+
+    private void putVertex(ByteBuffer vertex, SceneVertexFormat format, int index, float sin, float cos, int offsetX,
+                           int offsetY, int offsetZ, int color, float u, float v, int textureId) {
+        int x = verticesX[index];
+        int z = verticesZ[index];
+        if (sin != 0.0f || cos != 1.0f) {
+            // Same rotation as the submitter's rotateY, for triangles that are drawn pre-transformed
+            int rotatedX = Math.round(x * cos + z * sin);
+            z = Math.round(z * cos - x * sin);
+            x = rotatedX;
+        }
+        format.putVertex(vertex, x + offsetX, verticesY[index] + offsetY, z + offsetZ, color, u, v, textureId);
+    }
+
+    public boolean isTransparent(int i) {
+        return triangleAlphas != null && triangleAlphas[i] != 0 && colorsC[i] != -2
+                && (triangleTextures == null || triangleTextures[i] == -1);
+    }
+
+    public static boolean hasTransparentTriangles(Model model) {
+        byte[] triangleAlphas = model.getTriangleAlphas();
+        if (triangleAlphas == null) {
+            return false;
+        }
+        short[] triangleTextures = model.getTriangleTextures();
+        int[] colorsC = model.getColorsC();
+        for (int i = 0; i < model.getTriangleCount(); i++) {
+            if (triangleAlphas[i] != 0 && colorsC[i] != -2 && (triangleTextures == null || triangleTextures[i] == -1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public float getTriangleDepth(int i, float sin, float cos, int offsetX, int offsetY, int offsetZ,
+                                  Matrix4fc viewProjection) {
+        int a = indicesA[i];
+        int b = indicesB[i];
+        int c = indicesC[i];
+        float centerX = (verticesX[a] + verticesX[b] + verticesX[c]) / 3.0f;
+        float centerY = (verticesY[a] + verticesY[b] + verticesY[c]) / 3.0f;
+        float centerZ = (verticesZ[a] + verticesZ[b] + verticesZ[c]) / 3.0f;
+        float x = centerX * cos + centerZ * sin + offsetX;
+        float y = centerY + offsetY;
+        float z = centerZ * cos - centerX * sin + offsetZ;
+        return viewProjection.m03() * x + viewProjection.m13() * y + viewProjection.m23() * z
+                + viewProjection.m33();
+    }
+
+    public int getTrianglePriority(int i) {
+        return trianglePriorities != null ? trianglePriorities[i] & 0xF : 0;
+    }
+
+    public int getTriangleCount() {
+        return triangleCount;
+    }
+
+    public void setSplitTransparent(boolean splitTransparent) {
+        this.splitTransparent = splitTransparent;
+    }
+
+    private void computeTexCoords(int i) {
+        float[] u = texCoordsU;
+        float[] v = texCoordsV;
+        int textureId = -1;
+        if (triangleTextures != null) {
+            textureId = triangleTextures[i];
+        }
+        int mapping = -1;
+        if (textureMapping != null) {
+            mapping = textureMapping[i];
+        }
+        if (textureId == -1) {
+            u[0] = u[1] = u[2] = 0.0f;
+            v[0] = v[1] = v[2] = 0.0f;
+            return;
+        }
+        if (mapping == -1) {
+            u[0] = 0.0f;
+            v[0] = 1.0f;
+
+            u[1] = 1.0f;
+            v[1] = 1.0f;
+
+            u[2] = 0.0f;
+            v[2] = 0.0f;
+            return;
+        }
+
+        mapping &= 0xFF;
+        int a = indicesA[i];
+        int b = indicesB[i];
+        int c = indicesC[i];
+        int p = texIndicesP[mapping];
+        int m = texIndicesM[mapping];
+        int n = texIndicesN[mapping];
+        float originX = verticesX[p];
+        float originY = verticesY[p];
+        float originZ = verticesZ[p];
+        float mxDistance = verticesX[m] - originX;
+        float myDistance = verticesY[m] - originY;
+        float mzDistance = verticesZ[m] - originZ;
+        float nxDistance = verticesX[n] - originX;
+        float nyDistance = verticesY[n] - originY;
+        float nzDistance = verticesZ[n] - originZ;
+        float axDistance = verticesX[a] - originX;
+        float ayDistance = verticesY[a] - originY;
+        float azDistance = verticesZ[a] - originZ;
+        float bxDistance = verticesX[b] - originX;
+        float byDistance = verticesY[b] - originY;
+        float bzDistance = verticesZ[b] - originZ;
+        float cxDistance = verticesX[c] - originX;
+        float cyDistance = verticesY[c] - originY;
+        float czDistance = verticesZ[c] - originZ;
+        float f_797_ = myDistance * nzDistance - mzDistance * nyDistance;
+        float f_798_ = mzDistance * nxDistance - mxDistance * nzDistance;
+        float f_799_ = mxDistance * nyDistance - myDistance * nxDistance;
+        float f_800_ = nyDistance * f_799_ - nzDistance * f_798_;
+        float f_801_ = nzDistance * f_797_ - nxDistance * f_799_;
+        float f_802_ = nxDistance * f_798_ - nyDistance * f_797_;
+        float f_803_ = 1.0f / (f_800_ * mxDistance + f_801_ * myDistance + f_802_ * mzDistance);
+        u[0] = (f_800_ * axDistance + f_801_ * ayDistance + f_802_ * azDistance) * f_803_;
+        u[1] = (f_800_ * bxDistance + f_801_ * byDistance + f_802_ * bzDistance) * f_803_;
+        u[2] = (f_800_ * cxDistance + f_801_ * cyDistance + f_802_ * czDistance) * f_803_;
+        f_800_ = myDistance * f_799_ - mzDistance * f_798_;
+        f_801_ = mzDistance * f_797_ - mxDistance * f_799_;
+        f_802_ = mxDistance * f_798_ - myDistance * f_797_;
+        f_803_ = 1.0f / (f_800_ * nxDistance + f_801_ * nyDistance + f_802_ * nzDistance);
+        v[0] = (f_800_ * axDistance + f_801_ * ayDistance + f_802_ * azDistance) * f_803_;
+        v[1] = (f_800_ * bxDistance + f_801_ * byDistance + f_802_ * bzDistance) * f_803_;
+        v[2] = (f_800_ * cxDistance + f_801_ * cyDistance + f_802_ * czDistance) * f_803_;
+    }
+}
@@ -0,0 +1,89 @@
+package dev.dennis.osfx.render;
+
+public class RadixSorter {
+    private static final int RADIX_BITS = 8;
+
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    private final int[] histogram = new int[RADIX];
+
+    private int[] keys = new int[1024];
+
+    private int[] values = new int[1024];
+
+    private int[] sortedKeys = new int[1024];
+
+    private int[] sortedValues = new int[1024];
+
+    private int count;
+
+    public void clear() {
+        count = 0;
+    }
+
+    public void add(int key, int value) {
+        if (count == keys.length) {
+            int capacity = keys.length * 2;
+            keys = copyOf(keys, capacity);
+            values = copyOf(values, capacity);
+            sortedKeys = new int[capacity];
+            sortedValues = new int[capacity];
+        }
+        keys[count] = key;
+        values[count] = value;
+        count++;
+    }
+
+    // Keys are treated as unsigned; the sort is stable so equal keys keep their insertion order
+    public void sort() {
+        for (int shift = 0; shift < 32; shift += RADIX_BITS) {
+            int[] histogram = this.histogram;
+            for (int i = 0; i < RADIX; i++) {
+                histogram[i] = 0;
+            }
+            for (int i = 0; i < count; i++) {
+                histogram[keys[i] >>> shift & RADIX - 1]++;
+            }
+            if (histogram[keys[0] >>> shift & RADIX - 1] == count) {
+                continue;
+            }
+
+            int offset = 0;
+            for (int i = 0; i < RADIX; i++) {
+                int bucketCount = histogram[i];
+                histogram[i] = offset;
+                offset += bucketCount;
+            }
+            for (int i = 0; i < count; i++) {
+                int position = histogram[keys[i] >>> shift & RADIX - 1]++;
+                sortedKeys[position] = keys[i];
+                sortedValues[position] = values[i];
+            }
+
+            int[] swap = keys;
+            keys = sortedKeys;
+            sortedKeys = swap;
+            swap = values;
+            values = sortedValues;
+            sortedValues = swap;
+        }
+    }
+
+    private static int[] copyOf(int[] array, int capacity) {
+        int[] copy = new int[capacity];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getKey(int index) {
+        return keys[index];
+    }
+
+    public int getValue(int index) {
+        return values[index];
+    }
+}
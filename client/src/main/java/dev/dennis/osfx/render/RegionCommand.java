@@ -0,0 +1,13 @@
+package dev.dennis.osfx.render;
+
+public interface RegionCommand extends RenderCommand {
+    int getScissorX();
+
+    int getScissorY();
+
+    int getScissorWidth();
+
+    int getScissorHeight();
+
+    long getContentHash();
+}
@@ -0,0 +1,91 @@
+package dev.dennis.osfx.render;
+
+import dev.dennis.osfx.Renderer;
+
+public class RenderAtlasSpriteCommand implements RegionCommand {
+    private final SpriteAtlasPage page;
+
+    private final long stamp;
+
+    private final float minU;
+
+    private final float minV;
+
+    private final float maxU;
+
+    private final float maxV;
+
+    private final int x;
+
+    private final int y;
+
+    private final int width;
+
+    private final int height;
+
+    private final int alpha;
+
+    private final int scissorX;
+
+    private final int scissorY;
+
+    private final int scissorWidth;
+
+    private final int scissorHeight;
+
+    public RenderAtlasSpriteCommand(SpriteAtlasEntry entry, int x, int y, int width, int height, int alpha,
+                                    int scissorX, int scissorY, int scissorWidth, int scissorHeight) {
+        this.page = entry.getPage();
+        this.stamp = entry.getStamp();
+        this.minU = entry.getMinU();
+        this.minV = entry.getMinV();
+        this.maxU = entry.getMaxU();
+        this.maxV = entry.getMaxV();
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.alpha = alpha;
+        this.scissorX = scissorX;
+        this.scissorY = scissorY;
+        this.scissorWidth = scissorWidth;
+        this.scissorHeight = scissorHeight;
+    }
+
+    @Override
+    public void render(Renderer renderer, long encoder) {
+        renderer.getUiBatcher().addQuad(page.getTextureId(), scissorX, scissorY, scissorWidth, scissorHeight, x, y,
+                width, height, 0xFFFFFF, alpha, minU, minV, maxU, maxV);
+    }
+
+    @Override
+    public void cleanup(Renderer renderer) {
+
+    }
+
+    @Override
+    public long getContentHash() {
+        long hash = stamp;
+        hash = hash * 31 + x;
+        hash = hash * 31 + y;
+        hash = hash * 31 + width;
+        hash = hash * 31 + height;
+        return hash * 31 + alpha;
+    }
+
+    public int getScissorX() {
+        return scissorX;
+    }
+
+    public int getScissorY() {
+        return scissorY;
+    }
+
+    public int getScissorWidth() {
+        return scissorWidth;
+    }
+
+    public int getScissorHeight() {
+        return scissorHeight;
+    }
+}
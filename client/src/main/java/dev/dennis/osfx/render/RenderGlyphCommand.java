@@ -9,7 +9,7 @@ import java.nio.IntBuffer;
 
 import static org.lwjgl.bgfx.BGFX.*;
 
-public class RenderGlyphCommand implements RenderCommand {
+public class RenderGlyphCommand implements RegionCommand {
     private static final int GLYPH_COUNT = 256;
 
     private static final int GLYPH_ROWS = (int) Math.sqrt(GLYPH_COUNT);
@@ -56,7 +56,7 @@ public class RenderGlyphCommand implements RenderCommand {
         this.scissorHeight = scissorHeight;
     }
 
-    private void createTexture() {
+    static IntBuffer createTexture(AbstractFont font) {
         byte[][] glyphs = font.getGlyphs();
         int[] glyphWidths = font.getGlyphWidths();
         int[] glyphHeights = font.getGlyphHeights();
@@ -97,7 +97,7 @@ public class RenderGlyphCommand implements RenderCommand {
             }
         }
 
-        pixelsBuf = MemoryUtil.memAllocInt(textureSize * textureSize);
+        IntBuffer pixelsBuf = MemoryUtil.memAllocInt(textureSize * textureSize);
         pixelsBuf.put(pixels);
         pixelsBuf.flip();
 
@@ -106,28 +106,32 @@ public class RenderGlyphCommand implements RenderCommand {
 
         font.setTextureId(textureId);
         font.setTextureSize(textureSize);
+        return pixelsBuf;
     }
 
     @Override
     public void render(Renderer renderer, long encoder) {
         if (font.getTextureId() == -1) {
-            createTexture();
+            pixelsBuf = createTexture(font);
         }
 
-        bgfx_encoder_set_scissor(encoder, scissorX, scissorY, scissorWidth, scissorHeight);
-        bgfx_encoder_set_texture(encoder, 0, (short) 0, font.getTextureId(), BGFX_SAMPLER_NONE);
-        long state = BGFX_STATE_WRITE_RGB | BGFX_STATE_WRITE_A | BGFX_STATE_BLEND_ALPHA;
-        bgfx_encoder_set_state(encoder, state, 0);
-
-        float minU = glyphId % GLYPH_ROWS / 16.0f;
-        float minV = glyphId / GLYPH_ROWS / 16.0f;
+        float minU = getMinU(glyphId);
+        float minV = getMinV(glyphId);
         float maxU = minU;
         float maxV = minV;
         maxU += (float) width / (float) font.getTextureSize();
         maxV += (float) height / (float) font.getTextureSize();
 
-        renderer.renderQuad(encoder, Renderer.UI_VIEW, renderer.getQuadProgram(), x, y, width, height, rgb, alpha,
-                minU, minV, maxU, maxV);
+        renderer.getUiBatcher().addQuad(font.getTextureId(), scissorX, scissorY, scissorWidth, scissorHeight, x, y,
+                width, height, rgb, alpha, minU, minV, maxU, maxV);
+    }
+
+    static float getMinU(int glyphId) {
+        return glyphId % GLYPH_ROWS / 16.0f;
+    }
+
+    static float getMinV(int glyphId) {
+        return glyphId / GLYPH_ROWS / 16.0f;
     }
 
     @Override
@@ -136,4 +140,32 @@ public class RenderGlyphCommand implements RenderCommand {
             renderer.getBuffersToRemove().add(pixelsBuf);
         }
     }
+
+    @Override
+    public long getContentHash() {
+        long hash = System.identityHashCode(font);
+        hash = hash * 31 + glyphId;
+        hash = hash * 31 + x;
+        hash = hash * 31 + y;
+        hash = hash * 31 + width;
+        hash = hash * 31 + height;
+        hash = hash * 31 + rgb;
+        return hash * 31 + alpha;
+    }
+
+    public int getScissorX() {
+        return scissorX;
+    }
+
+    public int getScissorY() {
+        return scissorY;
+    }
+
+    public int getScissorWidth() {
+        return scissorWidth;
+    }
+
+    public int getScissorHeight() {
+        return scissorHeight;
+    }
 }
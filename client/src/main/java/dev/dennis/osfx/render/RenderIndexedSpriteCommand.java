@@ -0,0 +1,72 @@
+package dev.dennis.osfx.render;
+
+import dev.dennis.osfx.Renderer;
+
+public class RenderIndexedSpriteCommand implements RegionCommand {
+    private final IndexedSpriteEntry entry;
+
+    private final int x;
+
+    private final int y;
+
+    private final int width;
+
+    private final int height;
+
+    private final int scissorX;
+
+    private final int scissorY;
+
+    private final int scissorWidth;
+
+    private final int scissorHeight;
+
+    public RenderIndexedSpriteCommand(IndexedSpriteEntry entry, int x, int y, int width, int height, int scissorX,
+                                      int scissorY, int scissorWidth, int scissorHeight) {
+        this.entry = entry;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.scissorX = scissorX;
+        this.scissorY = scissorY;
+        this.scissorWidth = scissorWidth;
+        this.scissorHeight = scissorHeight;
+    }
+
+    @Override
+    public void render(Renderer renderer, long encoder) {
+        renderer.getUiBatcher().addPaletteQuad(entry.getIndexTextureId(), entry.getPaletteTextureId(), scissorX,
+                scissorY, scissorWidth, scissorHeight, x, y, width, height);
+    }
+
+    @Override
+    public void cleanup(Renderer renderer) {
+
+    }
+
+    @Override
+    public long getContentHash() {
+        long hash = entry.getId();
+        hash = hash * 31 + x;
+        hash = hash * 31 + y;
+        hash = hash * 31 + width;
+        return hash * 31 + height;
+    }
+
+    public int getScissorX() {
+        return scissorX;
+    }
+
+    public int getScissorY() {
+        return scissorY;
+    }
+
+    public int getScissorWidth() {
+        return scissorWidth;
+    }
+
+    public int getScissorHeight() {
+        return scissorHeight;
+    }
+}
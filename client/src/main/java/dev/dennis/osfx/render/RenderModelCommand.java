@@ -5,25 +5,53 @@ import dev.dennis.osfx.api.Model;
 import java.nio.ByteBuffer;
 
 public class RenderModelCommand {
-    private final int rotation;
+    private int rotation;
 
-    private final int x;
+    private int x;
 
-    private final int y;
+    private int y;
 
-    private final int z;
+    private int z;
 
-    private final int vertexStart;
+    private int vertexStart;
 
-    private final int vertexCount;
+    private int vertexCount;
 
-    public RenderModelCommand(int rotation, int x, int y, int z, int vertexStart, int vertexCount) {
+    private StaticGeometry geometry;
+
+    private VertexJob job;
+
+    private ModelInstances instances;
+
+    public RenderModelCommand set(int rotation, int x, int y, int z, int vertexStart, int vertexCount) {
+        return set(rotation, x, y, z, vertexStart, vertexCount, null, null);
+    }
+
+    public RenderModelCommand set(int rotation, int x, int y, int z, ModelCacheEntry cacheEntry) {
+        return set(rotation, x, y, z, 0, cacheEntry.getVertexCount(), cacheEntry, null);
+    }
+
+    public RenderModelCommand set(int rotation, int x, int y, int z, VertexJob job) {
+        return set(rotation, x, y, z, job.getVertexStart(), job.getVertexCount(), null, job);
+    }
+
+    public RenderModelCommand set(int rotation, int x, int y, int z, int vertexStart, int vertexCount,
+                                  StaticGeometry geometry) {
+        return set(rotation, x, y, z, vertexStart, vertexCount, geometry, null);
+    }
+
+    private RenderModelCommand set(int rotation, int x, int y, int z, int vertexStart, int vertexCount,
+                                   StaticGeometry geometry, VertexJob job) {
         this.rotation = rotation;
         this.x = x;
         this.y = y;
         this.z = z;
         this.vertexStart = vertexStart;
         this.vertexCount = vertexCount;
+        this.geometry = geometry;
+        this.job = job;
+        this.instances = null;
+        return this;
     }
 
     public int getRotation() {
@@ -49,4 +77,20 @@ public class RenderModelCommand {
     public int getVertexCount() {
         return vertexCount;
     }
+
+    public StaticGeometry getGeometry() {
+        return geometry;
+    }
+
+    public VertexJob getJob() {
+        return job;
+    }
+
+    public ModelInstances getInstances() {
+        return instances;
+    }
+
+    public void setInstances(ModelInstances instances) {
+        this.instances = instances;
+    }
 }
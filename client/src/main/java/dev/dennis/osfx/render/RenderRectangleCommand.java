@@ -2,9 +2,7 @@ package dev.dennis.osfx.render;
 
 import dev.dennis.osfx.Renderer;
 
-import static org.lwjgl.bgfx.BGFX.*;
-
-public class RenderRectangleCommand implements RenderCommand {
+public class RenderRectangleCommand implements RegionCommand {
     private final int x;
 
     private final int y;
@@ -41,15 +39,38 @@ public class RenderRectangleCommand implements RenderCommand {
 
     @Override
     public void render(Renderer renderer, long encoder) {
-        bgfx_encoder_set_scissor(encoder, scissorX, scissorY, scissorWidth, scissorHeight);
-        bgfx_encoder_set_texture(encoder, 0, (short) 0, renderer.getWhiteTextureId(), BGFX_SAMPLER_NONE);
-        long state = BGFX_STATE_WRITE_RGB | BGFX_STATE_WRITE_A | BGFX_STATE_BLEND_ALPHA;
-        bgfx_encoder_set_state(encoder, state, 0);
-        renderer.renderQuad(encoder, Renderer.UI_VIEW, renderer.getQuadProgram(), x, y, width, height, rgb, alpha);
+        renderer.getUiBatcher().addQuad(renderer.getWhiteTextureId(), scissorX, scissorY, scissorWidth,
+                scissorHeight, x, y, width, height, rgb, alpha, 0.0f, 0.0f, 1.0f, 1.0f);
     }
 
     @Override
     public void cleanup(Renderer renderer) {
 
     }
+
+    @Override
+    public long getContentHash() {
+        long hash = x;
+        hash = hash * 31 + y;
+        hash = hash * 31 + width;
+        hash = hash * 31 + height;
+        hash = hash * 31 + rgb;
+        return hash * 31 + alpha;
+    }
+
+    public int getScissorX() {
+        return scissorX;
+    }
+
+    public int getScissorY() {
+        return scissorY;
+    }
+
+    public int getScissorWidth() {
+        return scissorWidth;
+    }
+
+    public int getScissorHeight() {
+        return scissorHeight;
+    }
 }
@@ -6,7 +6,7 @@ import java.nio.IntBuffer;
 
 import static org.lwjgl.bgfx.BGFX.*;
 
-public class RenderSpriteCommand implements RenderCommand {
+public class RenderSpriteCommand implements RegionCommand {
     private final IntBuffer pixelsBuf;
 
     private final int spriteWidth;
@@ -31,6 +31,8 @@ public class RenderSpriteCommand implements RenderCommand {
 
     private final int scissorHeight;
 
+    private long contentHash;
+
     public RenderSpriteCommand(IntBuffer pixelsBuf, int spriteWidth, int spriteHeight, int x, int y,
                                int width, int height, int alpha, int scissorX, int scissorY,
                                int scissorWidth, int scissorHeight) {
@@ -54,11 +56,8 @@ public class RenderSpriteCommand implements RenderCommand {
                 BGFX_TEXTURE_FORMAT_BGRA8, BGFX_TEXTURE_NONE, bgfx_make_ref(pixelsBuf));
         renderer.getTexturesToRemove().add(textureId);
 
-        bgfx_encoder_set_scissor(encoder, scissorX, scissorY, scissorWidth, scissorHeight);
-        bgfx_encoder_set_texture(encoder, 0, (short) 0, textureId, BGFX_SAMPLER_NONE);
-        long state = BGFX_STATE_WRITE_RGB | BGFX_STATE_WRITE_A | BGFX_STATE_BLEND_ALPHA;
-        bgfx_encoder_set_state(encoder, state, 0);
-        renderer.renderQuad(encoder, Renderer.UI_VIEW, renderer.getQuadProgram(), x, y, width, height, 0xFFFFFF, alpha);
+        renderer.getUiBatcher().addQuad(textureId, scissorX, scissorY, scissorWidth, scissorHeight, x, y, width,
+                height, 0xFFFFFF, alpha, 0.0f, 0.0f, 1.0f, 1.0f);
     }
 
     @Override
@@ -113,4 +112,22 @@ public class RenderSpriteCommand implements RenderCommand {
     public int getScissorHeight() {
         return scissorHeight;
     }
+
+    @Override
+    public long getContentHash() {
+        // The pixels are a copy made for this draw, so their contents are all there is to compare
+        if (contentHash == 0) {
+            long hash = spriteWidth;
+            hash = hash * 31 + spriteHeight;
+            for (int i = 0; i < pixelsBuf.limit(); i++) {
+                hash = hash * 31 + pixelsBuf.get(i);
+            }
+            hash = hash * 31 + x;
+            hash = hash * 31 + y;
+            hash = hash * 31 + width;
+            hash = hash * 31 + height;
+            contentHash = hash * 31 + alpha;
+        }
+        return contentHash;
+    }
 }
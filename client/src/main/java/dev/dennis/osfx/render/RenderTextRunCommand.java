@@ -0,0 +1,143 @@
+package dev.dennis.osfx.render;
+
+import dev.dennis.osfx.Renderer;
+import dev.dennis.osfx.api.AbstractFont;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+public class RenderTextRunCommand implements RegionCommand {
+    private static final int GLYPH_FIELDS = 7;
+
+    private final AbstractFont font;
+
+    private final int scissorX;
+
+    private final int scissorY;
+
+    private final int scissorWidth;
+
+    private final int scissorHeight;
+
+    private int[] glyphs;
+
+    private int glyphCount;
+
+    private ByteBuffer vertices;
+
+    private long contentHash;
+
+    private IntBuffer pixelsBuf;
+
+    public RenderTextRunCommand(AbstractFont font, int scissorX, int scissorY, int scissorWidth, int scissorHeight) {
+        this.font = font;
+        this.scissorX = scissorX;
+        this.scissorY = scissorY;
+        this.scissorWidth = scissorWidth;
+        this.scissorHeight = scissorHeight;
+        this.glyphs = new int[16 * GLYPH_FIELDS];
+    }
+
+    public boolean matches(AbstractFont font, int scissorX, int scissorY, int scissorWidth, int scissorHeight) {
+        return this.font == font && this.scissorX == scissorX && this.scissorY == scissorY
+                && this.scissorWidth == scissorWidth && this.scissorHeight == scissorHeight;
+    }
+
+    public void addGlyph(int glyphId, int x, int y, int width, int height, int rgb, int alpha) {
+        int offset = glyphCount * GLYPH_FIELDS;
+        if (offset == glyphs.length) {
+            glyphs = Arrays.copyOf(glyphs, glyphs.length * 2);
+        }
+        glyphs[offset] = glyphId;
+        glyphs[offset + 1] = x;
+        glyphs[offset + 2] = y;
+        glyphs[offset + 3] = width;
+        glyphs[offset + 4] = height;
+        glyphs[offset + 5] = rgb;
+        glyphs[offset + 6] = alpha;
+        glyphCount++;
+    }
+
+    public boolean isGlyph(int index, int glyphId, int x, int y, int width, int height, int rgb, int alpha) {
+        int offset = index * GLYPH_FIELDS;
+        return index < glyphCount && glyphs[offset] == glyphId && glyphs[offset + 1] == x && glyphs[offset + 2] == y
+                && glyphs[offset + 3] == width && glyphs[offset + 4] == height && glyphs[offset + 5] == rgb
+                && glyphs[offset + 6] == alpha;
+    }
+
+    public RenderTextRunCommand copy(int glyphCount) {
+        RenderTextRunCommand run = new RenderTextRunCommand(font, scissorX, scissorY, scissorWidth, scissorHeight);
+        run.glyphs = Arrays.copyOf(glyphs, Math.max(glyphCount, 16) * GLYPH_FIELDS);
+        run.glyphCount = glyphCount;
+        return run;
+    }
+
+    @Override
+    public void render(Renderer renderer, long encoder) {
+        if (font.getTextureId() == -1) {
+            pixelsBuf = RenderGlyphCommand.createTexture(font);
+        }
+        // Cached runs are submitted again in later frames, so their quads are only built once
+        if (vertices == null) {
+            vertices = ByteBuffer.allocate(glyphCount * UiBatcher.QUAD_SIZE).order(ByteOrder.nativeOrder());
+            float textureSize = font.getTextureSize();
+            for (int i = 0; i < glyphCount; i++) {
+                int offset = i * GLYPH_FIELDS;
+                int glyphId = glyphs[offset];
+                int width = glyphs[offset + 3];
+                int height = glyphs[offset + 4];
+                float minU = RenderGlyphCommand.getMinU(glyphId);
+                float minV = RenderGlyphCommand.getMinV(glyphId);
+                UiBatcher.putQuad(vertices, glyphs[offset + 1], glyphs[offset + 2], width, height,
+                        glyphs[offset + 5], glyphs[offset + 6], minU, minV, minU + width / textureSize,
+                        minV + height / textureSize);
+            }
+            vertices.flip();
+        }
+        renderer.getUiBatcher().addQuads(font.getTextureId(), scissorX, scissorY, scissorWidth, scissorHeight,
+                vertices, glyphCount);
+    }
+
+    @Override
+    public void cleanup(Renderer renderer) {
+        if (pixelsBuf != null) {
+            renderer.getBuffersToRemove().add(pixelsBuf);
+            pixelsBuf = null;
+        }
+    }
+
+    public int getGlyphCount() {
+        return glyphCount;
+    }
+
+    @Override
+    public long getContentHash() {
+        // Runs are finished before they are submitted, and cached runs come back unchanged
+        if (contentHash == 0) {
+            long hash = System.identityHashCode(font);
+            for (int i = 0; i < glyphCount * GLYPH_FIELDS; i++) {
+                hash = hash * 31 + glyphs[i];
+            }
+            contentHash = hash;
+        }
+        return contentHash;
+    }
+
+    public int getScissorX() {
+        return scissorX;
+    }
+
+    public int getScissorY() {
+        return scissorY;
+    }
+
+    public int getScissorWidth() {
+        return scissorWidth;
+    }
+
+    public int getScissorHeight() {
+        return scissorHeight;
+    }
+}
@@ -0,0 +1,92 @@
+package dev.dennis.osfx.render;
+
+import java.nio.ByteBuffer;
+
+public enum SceneVertexFormat {
+    STANDARD(28) {
+        @Override
+        public void putVertex(ByteBuffer vertex, int x, int y, int z, int color, float u, float v, int textureId) {
+            vertex.putFloat(x);
+            vertex.putFloat(y);
+            vertex.putFloat(z);
+            vertex.putInt(color);
+            vertex.putFloat(u);
+            vertex.putFloat(v);
+            vertex.putFloat(textureId);
+        }
+    },
+    COMPACT(16) {
+        @Override
+        public void putVertex(ByteBuffer vertex, int x, int y, int z, int color, float u, float v, int textureId) {
+            // The texture layer rides in the otherwise unused w component of the position
+            vertex.putShort(clampShort(x));
+            vertex.putShort(clampShort(y));
+            vertex.putShort(clampShort(z));
+            vertex.putShort((short) textureId);
+            vertex.putInt(color);
+            vertex.putShort(toHalf(u));
+            vertex.putShort(toHalf(v));
+        }
+    };
+
+    private final int stride;
+
+    SceneVertexFormat(int stride) {
+        this.stride = stride;
+    }
+
+    public abstract void putVertex(ByteBuffer vertex, int x, int y, int z, int color, float u, float v,
+                                   int textureId);
+
+    public int getStride() {
+        return stride;
+    }
+
+    public static int packColor(int[] colorPalette, int hsl, int alpha) {
+        if (colorPalette == null) {
+            // Without a palette the scene shader looks the 16-bit HSL index up in the palette texture
+            return alpha << 24 | hsl & 0xFFFF;
+        }
+        return packColor(colorPalette[hsl], alpha);
+    }
+
+    public static int packColor(int rgb, int alpha) {
+        int r = rgb >> 16 & 0xFF;
+        int g = rgb >> 8 & 0xFF;
+        int b = rgb & 0xFF;
+        return alpha << 24 | b << 16 | g << 8 | r;
+    }
+
+    private static short clampShort(int value) {
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+    }
+
+    static short toHalf(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = bits >>> 16 & 0x8000;
+        int exponent = (bits >>> 23 & 0xFF) - 127 + 15;
+        int mantissa = bits & 0x7FFFFF;
+
+        if (exponent <= 0) {
+            if (exponent < -10) {
+                return (short) sign;
+            }
+            mantissa |= 0x800000;
+            int shift = 14 - exponent;
+            int half = mantissa >> shift;
+            if ((mantissa >> shift - 1 & 1) != 0) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+        if (exponent >= 0x1F) {
+            // NaN is never produced for texture coordinates, so everything out of range saturates to infinity
+            return (short) (sign | 0x7C00);
+        }
+        int half = sign | exponent << 10 | mantissa >> 13;
+        if ((mantissa & 0x1000) != 0) {
+            half++;
+        }
+        return (short) half;
+    }
+}
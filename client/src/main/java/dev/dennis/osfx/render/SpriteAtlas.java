@@ -0,0 +1,152 @@
+package dev.dennis.osfx.render;
+
+import dev.dennis.osfx.api.AbstractSprite;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+public class SpriteAtlas {
+    public static final int PAGE_SIZE = 2048;
+
+    private static final int PADDING = 1;
+
+    private static final int MAX_CHANGE_COUNT = 4;
+
+    private final SpriteAtlasPage[] pages;
+
+    private final Map<AbstractSprite, SpriteAtlasEntry> entries;
+
+    private long frame;
+
+    private volatile long hits;
+
+    private volatile long uploads;
+
+    private volatile long uploadBytes;
+
+    private volatile long evictions;
+
+    private volatile long fallbacks;
+
+    public static long computeStamp(int[] pixels, int width, int height) {
+        long stamp = width;
+        stamp = stamp * 31 + height;
+        for (int i = 0; i < width * height; i++) {
+            stamp = stamp * 31 + pixels[i];
+        }
+        return stamp;
+    }
+
+    public SpriteAtlas(int pageCount) {
+        this.pages = new SpriteAtlasPage[pageCount];
+        for (int i = 0; i < pageCount; i++) {
+            pages[i] = new SpriteAtlasPage(i, PAGE_SIZE);
+        }
+        this.entries = new HashMap<>();
+    }
+
+    public void beginFrame() {
+        frame++;
+    }
+
+    public SpriteAtlasEntry get(AbstractSprite sprite, int[] pixels, int width, int height, FramePacket packet) {
+        SpriteAtlasEntry entry = entries.get(sprite);
+        // Sprites redrawn with new contents every frame, like the minimap, would only churn the pages
+        if (entry != null && entry.getChangeCount() >= MAX_CHANGE_COUNT) {
+            fallbacks++;
+            return null;
+        }
+
+        long stamp = computeStamp(pixels, width, height);
+        if (entry != null && entry.isValid(stamp)) {
+            entry.getPage().setLastUsedFrame(frame);
+            hits++;
+            return entry;
+        }
+        int changeCount = entry != null && entry.getStamp() != stamp ? entry.getChangeCount() + 1 : 0;
+
+        // The transparent border keeps filtering from bleeding in neighbouring sprites
+        int paddedWidth = width + PADDING * 2;
+        int paddedHeight = height + PADDING * 2;
+        SpriteAtlasPage page = null;
+        int position = -1;
+        for (SpriteAtlasPage candidate : pages) {
+            position = candidate.allocate(paddedWidth, paddedHeight);
+            if (position != -1) {
+                page = candidate;
+                break;
+            }
+        }
+        if (page == null) {
+            page = evictPage();
+            if (page != null) {
+                position = page.allocate(paddedWidth, paddedHeight);
+            }
+        }
+        if (position == -1) {
+            fallbacks++;
+            return null;
+        }
+
+        int x = position >>> 16;
+        int y = position & 0xFFFF;
+        entry = new SpriteAtlasEntry(stamp, page, x + PADDING, y + PADDING, width, height);
+        entry.setChangeCount(changeCount);
+        entries.put(sprite, entry);
+        page.setLastUsedFrame(frame);
+
+        packet.addSpriteUpload(page, x, y, paddedWidth, paddedHeight, pixels, width, height, PADDING);
+        uploads++;
+        uploadBytes += paddedWidth * paddedHeight * 4;
+        return entry;
+    }
+
+    private SpriteAtlasPage evictPage() {
+        // Pages are only cleared whole, and never while an earlier draw of this frame still samples them
+        SpriteAtlasPage oldest = null;
+        for (SpriteAtlasPage page : pages) {
+            if (page.getLastUsedFrame() != frame
+                    && (oldest == null || page.getLastUsedFrame() < oldest.getLastUsedFrame())) {
+                oldest = page;
+            }
+        }
+        if (oldest == null) {
+            return null;
+        }
+        oldest.clear();
+
+        Iterator<SpriteAtlasEntry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getPage() == oldest) {
+                iterator.remove();
+                evictions++;
+            }
+        }
+        return oldest;
+    }
+
+    public SpriteAtlasPage[] getPages() {
+        return pages;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getUploads() {
+        return uploads;
+    }
+
+    public long getUploadBytes() {
+        return uploadBytes;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getFallbacks() {
+        return fallbacks;
+    }
+}
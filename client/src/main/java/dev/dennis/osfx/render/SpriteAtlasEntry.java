@@ -0,0 +1,81 @@
+package dev.dennis.osfx.render;
+
+public class SpriteAtlasEntry {
+    private final long stamp;
+
+    private final SpriteAtlasPage page;
+
+    private final int generation;
+
+    private final int x;
+
+    private final int y;
+
+    private final int width;
+
+    private final int height;
+
+    private int changeCount;
+
+    public SpriteAtlasEntry(long stamp, SpriteAtlasPage page, int x, int y, int width, int height) {
+        this.stamp = stamp;
+        this.page = page;
+        this.generation = page.getGeneration();
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+    }
+
+    public boolean isValid(long stamp) {
+        return this.stamp == stamp && page.getGeneration() == generation;
+    }
+
+    public float getMinU() {
+        return (float) x / page.getSize();
+    }
+
+    public float getMinV() {
+        return (float) y / page.getSize();
+    }
+
+    public float getMaxU() {
+        return (float) (x + width) / page.getSize();
+    }
+
+    public float getMaxV() {
+        return (float) (y + height) / page.getSize();
+    }
+
+    public int getChangeCount() {
+        return changeCount;
+    }
+
+    public void setChangeCount(int changeCount) {
+        this.changeCount = changeCount;
+    }
+
+    public long getStamp() {
+        return stamp;
+    }
+
+    public SpriteAtlasPage getPage() {
+        return page;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+}
@@ -0,0 +1,99 @@
+package dev.dennis.osfx.render;
+
+import java.util.Arrays;
+
+public class SpriteAtlasPage {
+    private final int index;
+
+    private final int size;
+
+    private int[] shelfYs = new int[16];
+
+    private int[] shelfHeights = new int[16];
+
+    private int[] shelfWidths = new int[16];
+
+    private int shelfCount;
+
+    private int nextShelfY;
+
+    private int generation;
+
+    private long lastUsedFrame;
+
+    private volatile short textureId;
+
+    public SpriteAtlasPage(int index, int size) {
+        this.index = index;
+        this.size = size;
+        this.textureId = -1;
+    }
+
+    // Returns the position packed as x << 16 | y, or -1 if the page is full
+    public int allocate(int width, int height) {
+        if (width > size || height > size) {
+            return -1;
+        }
+        // The lowest shelf that fits wastes the least, but a much taller one would waste more than a new shelf
+        int bestShelf = -1;
+        for (int i = 0; i < shelfCount; i++) {
+            int shelfHeight = shelfHeights[i];
+            if (shelfHeight >= height && shelfHeight <= height + (height >> 1) && shelfWidths[i] + width <= size
+                    && (bestShelf == -1 || shelfHeight < shelfHeights[bestShelf])) {
+                bestShelf = i;
+            }
+        }
+        if (bestShelf == -1) {
+            if (nextShelfY + height > size) {
+                return -1;
+            }
+            if (shelfCount == shelfYs.length) {
+                shelfYs = Arrays.copyOf(shelfYs, shelfCount * 2);
+                shelfHeights = Arrays.copyOf(shelfHeights, shelfCount * 2);
+                shelfWidths = Arrays.copyOf(shelfWidths, shelfCount * 2);
+            }
+            bestShelf = shelfCount++;
+            shelfYs[bestShelf] = nextShelfY;
+            shelfHeights[bestShelf] = height;
+            shelfWidths[bestShelf] = 0;
+            nextShelfY += height;
+        }
+        int x = shelfWidths[bestShelf];
+        shelfWidths[bestShelf] += width;
+        return x << 16 | shelfYs[bestShelf];
+    }
+
+    public void clear() {
+        shelfCount = 0;
+        nextShelfY = 0;
+        generation++;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public long getLastUsedFrame() {
+        return lastUsedFrame;
+    }
+
+    public void setLastUsedFrame(long lastUsedFrame) {
+        this.lastUsedFrame = lastUsedFrame;
+    }
+
+    public short getTextureId() {
+        return textureId;
+    }
+
+    public void setTextureId(short textureId) {
+        this.textureId = textureId;
+    }
+}
@@ -0,0 +1,50 @@
+package dev.dennis.osfx.render;
+
+import java.nio.IntBuffer;
+
+public class SpriteUpload {
+    private final SpriteAtlasPage page;
+
+    private final int x;
+
+    private final int y;
+
+    private final int width;
+
+    private final int height;
+
+    private final IntBuffer pixelsBuf;
+
+    public SpriteUpload(SpriteAtlasPage page, int x, int y, int width, int height, IntBuffer pixelsBuf) {
+        this.page = page;
+        this.x = x;
+        this.y = y;
+        this.width = width;
+        this.height = height;
+        this.pixelsBuf = pixelsBuf;
+    }
+
+    public SpriteAtlasPage getPage() {
+        return page;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public IntBuffer getPixelsBuf() {
+        return pixelsBuf;
+    }
+}
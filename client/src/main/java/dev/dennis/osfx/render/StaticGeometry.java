@@ -0,0 +1,7 @@
+package dev.dennis.osfx.render;
+
+public interface StaticGeometry {
+    short getVertexBufferId();
+
+    void setVertexBufferId(short vertexBufferId);
+}
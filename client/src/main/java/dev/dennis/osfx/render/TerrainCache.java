@@ -0,0 +1,325 @@
+package dev.dennis.osfx.render;
+
+import dev.dennis.osfx.api.Scene;
+import dev.dennis.osfx.api.SceneTileModel;
+import dev.dennis.osfx.api.SceneTilePaint;
+import dev.dennis.osfx.api.Tile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class TerrainCache {
+    public static final int CHUNK_SHIFT = 3;
+
+    public static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    public static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    public static final int BAKED = 0;
+
+    public static final int PENDING = 1;
+
+    public static final int CHANGED = 2;
+
+    private static final int LOCAL_TILE_SIZE = 128;
+
+    private static final int LAYER_COUNT = 4;
+
+    private final SceneVertexFormat vertexFormat;
+
+    private final ExecutorService builder;
+
+    private final Queue<TerrainChunkBuffer> completedBuilds;
+
+    private final List<TerrainChunk> dirtyChunks;
+
+    private final List<TerrainChunk> drawnChunks;
+
+    private TerrainChunk[][][] paintChunks;
+
+    private TerrainChunk[][][] modelChunks;
+
+    // The overlay callback has no level, so overlays are assigned to layers by identity instead
+    private SceneTileModel[][][] overlayTiles;
+
+    private long[][][] overlayFrames;
+
+    private int sizeX;
+
+    private int sizeY;
+
+    private long frame;
+
+    private int generation;
+
+    private int paletteStamp;
+
+    private int cameraX;
+
+    private int cameraY;
+
+    private int cameraZ;
+
+    private volatile long bakedTiles;
+
+    private volatile long fallbackTiles;
+
+    private volatile long rebuilds;
+
+    private volatile int chunkDraws;
+
+    private volatile int culledChunks;
+
+    public TerrainCache(SceneVertexFormat vertexFormat) {
+        this.vertexFormat = vertexFormat;
+        this.builder = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "osfx-terrain");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.completedBuilds = new ConcurrentLinkedQueue<>();
+        this.dirtyChunks = new ArrayList<>();
+        this.drawnChunks = new ArrayList<>();
+    }
+
+    public void beginFrame(Scene scene, int paletteStamp, int cameraX, int cameraY, int cameraZ,
+                           FramePacket packet) {
+        frame++;
+        this.cameraX = cameraX;
+        this.cameraY = cameraY;
+        this.cameraZ = cameraZ;
+
+        Tile[][][] tiles = scene.getTiles();
+        if (paintChunks == null || tiles[0].length != sizeX || tiles[0][0].length != sizeY
+                || paletteStamp != this.paletteStamp) {
+            clear(packet);
+            sizeX = tiles[0].length;
+            sizeY = tiles[0][0].length;
+            int chunksX = (sizeX + CHUNK_MASK) >> CHUNK_SHIFT;
+            int chunksY = (sizeY + CHUNK_MASK) >> CHUNK_SHIFT;
+            paintChunks = new TerrainChunk[LAYER_COUNT][chunksX][chunksY];
+            modelChunks = new TerrainChunk[LAYER_COUNT][chunksX][chunksY];
+            overlayTiles = new SceneTileModel[LAYER_COUNT][sizeX][sizeY];
+            overlayFrames = new long[LAYER_COUNT][sizeX][sizeY];
+            this.paletteStamp = paletteStamp;
+        }
+
+        TerrainChunkBuffer build;
+        while ((build = completedBuilds.poll()) != null) {
+            TerrainChunk chunk = build.getChunk();
+            if (chunk.getGeneration() != generation) {
+                build.freeVertices();
+                continue;
+            }
+            chunk.setBuilding(false);
+            if (chunk.getBuffer() != null) {
+                packet.getGeometryReleases().add(chunk.getBuffer());
+            }
+            chunk.setBuffer(build);
+            packet.getTerrainUploads().add(build);
+        }
+
+        for (int i = dirtyChunks.size() - 1; i >= 0; i--) {
+            TerrainChunk chunk = dirtyChunks.get(i);
+            if (chunk.isBuilding()) {
+                continue;
+            }
+            chunk.setDirty(false);
+            chunk.setBuilding(true);
+            dirtyChunks.remove(i);
+
+            TerrainChunkBuffer buffer = chunk.createBuffer();
+            builder.execute(() -> {
+                buffer.build(vertexFormat);
+                completedBuilds.offer(buffer);
+            });
+            rebuilds++;
+        }
+    }
+
+    public int drawTilePaint(int level, int x, int y, SceneTilePaint tile, long stamp) {
+        return drawTile(getChunk(paintChunks, level, x, y), x, y, tile, stamp);
+    }
+
+    public void updateTilePaint(int level, int x, int y, SceneTilePaint tile, long stamp, int minHeight,
+                                int maxHeight, VertexJob job) {
+        TerrainChunk chunk = getChunk(paintChunks, level, x, y);
+        chunk.includeHeights(minHeight, maxHeight);
+        updateTile(chunk, x, y, tile, stamp, job);
+    }
+
+    public int drawTileModel(int x, int y, SceneTileModel tile) {
+        return drawTile(getChunk(modelChunks, getOverlayLayer(x, y, tile), x, y), x, y, tile, 0L);
+    }
+
+    public void updateTileModel(int x, int y, SceneTileModel tile, VertexJob job) {
+        TerrainChunk chunk = getChunk(modelChunks, getOverlayLayer(x, y, tile), x, y);
+        int minHeight = Integer.MAX_VALUE;
+        int maxHeight = Integer.MIN_VALUE;
+        for (int height : tile.getVerticesY()) {
+            minHeight = Math.min(minHeight, height);
+            maxHeight = Math.max(maxHeight, height);
+        }
+        chunk.includeHeights(minHeight, maxHeight);
+        updateTile(chunk, x, y, tile, 0L, job);
+    }
+
+    public static int getChunkOffset(int tile) {
+        return (tile & CHUNK_MASK) * LOCAL_TILE_SIZE;
+    }
+
+    // With a culler, whole chunks are culled here instead of the scene culling each tile
+    public void emitCommands(FramePacket packet, FrustumCuller culler) {
+        int chunkDraws = 0;
+        int culledChunks = 0;
+        for (TerrainChunk chunk : drawnChunks) {
+            TerrainChunkBuffer buffer = chunk.getBuffer();
+            long drawnMask = chunk.getDrawnMask();
+            chunk.setDrawnMask(0L);
+
+            int localX = (chunk.getChunkX() << CHUNK_SHIFT) * LOCAL_TILE_SIZE;
+            int localY = (chunk.getChunkY() << CHUNK_SHIFT) * LOCAL_TILE_SIZE;
+            if (culler != null && !culler.isAreaVisible(localX, localY, CHUNK_SIZE * LOCAL_TILE_SIZE, cameraX,
+                    cameraY, cameraZ, chunk.getMinHeight(), chunk.getMaxHeight())) {
+                culledChunks++;
+                continue;
+            }
+            int originX = localX - cameraX;
+            int originY = localY - cameraY;
+
+            // Slots are laid out in order, so consecutive drawn slots form one contiguous vertex range
+            int runStart = -1;
+            int runEnd = -1;
+            for (int slot = 0; slot < CHUNK_SIZE * CHUNK_SIZE; slot++) {
+                int vertexCount = buffer.getSlotVertexCount(slot);
+                if ((drawnMask & 1L << slot) != 0) {
+                    if (runStart == -1) {
+                        runStart = buffer.getSlotVertexStart(slot);
+                    }
+                    runEnd = buffer.getSlotVertexStart(slot) + vertexCount;
+                } else if (vertexCount > 0 && runStart != -1) {
+                    emitRun(packet, buffer, originX, originY, runStart, runEnd);
+                    chunkDraws++;
+                    runStart = -1;
+                }
+            }
+            if (runStart != -1) {
+                emitRun(packet, buffer, originX, originY, runStart, runEnd);
+                chunkDraws++;
+            }
+        }
+        drawnChunks.clear();
+        this.chunkDraws = chunkDraws;
+        this.culledChunks = culledChunks;
+    }
+
+    public void shutdown() {
+        builder.shutdownNow();
+    }
+
+    private void emitRun(FramePacket packet, TerrainChunkBuffer buffer, int originX, int originY, int start,
+                         int end) {
+        if (end > start) {
+            packet.addModelCommand().set(0, originX, -cameraZ, originY, start, end - start, buffer);
+        }
+    }
+
+    private int drawTile(TerrainChunk chunk, int x, int y, Object tile, long stamp) {
+        int slot = getSlot(x, y);
+        TerrainChunkBuffer buffer = chunk.getBuffer();
+        if (buffer != null && buffer.matches(slot, tile, stamp)) {
+            long drawnMask = chunk.getDrawnMask();
+            if (drawnMask == 0L) {
+                drawnChunks.add(chunk);
+            }
+            chunk.setDrawnMask(drawnMask | 1L << slot);
+            bakedTiles++;
+            return BAKED;
+        }
+        fallbackTiles++;
+        return chunk.matches(slot, tile, stamp) ? PENDING : CHANGED;
+    }
+
+    private void updateTile(TerrainChunk chunk, int x, int y, Object tile, long stamp, VertexJob job) {
+        chunk.setSlot(getSlot(x, y), tile, stamp, job);
+        if (!chunk.isDirty()) {
+            chunk.setDirty(true);
+            dirtyChunks.add(chunk);
+        }
+    }
+
+    private int getOverlayLayer(int x, int y, SceneTileModel tile) {
+        int oldestLayer = 0;
+        for (int layer = 0; layer < LAYER_COUNT; layer++) {
+            if (overlayTiles[layer][x][y] == tile) {
+                overlayFrames[layer][x][y] = frame;
+                return layer;
+            }
+            if (overlayFrames[layer][x][y] < overlayFrames[oldestLayer][x][y]) {
+                oldestLayer = layer;
+            }
+        }
+        overlayTiles[oldestLayer][x][y] = tile;
+        overlayFrames[oldestLayer][x][y] = frame;
+        return oldestLayer;
+    }
+
+    private TerrainChunk getChunk(TerrainChunk[][][] chunks, int layer, int x, int y) {
+        int chunkX = x >> CHUNK_SHIFT;
+        int chunkY = y >> CHUNK_SHIFT;
+        TerrainChunk chunk = chunks[layer][chunkX][chunkY];
+        if (chunk == null) {
+            chunk = chunks[layer][chunkX][chunkY] = new TerrainChunk(generation, chunkX, chunkY,
+                    CHUNK_SIZE * CHUNK_SIZE);
+        }
+        return chunk;
+    }
+
+    private static int getSlot(int x, int y) {
+        return (y & CHUNK_MASK) << CHUNK_SHIFT | (x & CHUNK_MASK);
+    }
+
+    private void clear(FramePacket packet) {
+        generation++;
+        if (paintChunks == null) {
+            return;
+        }
+        for (TerrainChunk[][][] chunks : new TerrainChunk[][][][] {paintChunks, modelChunks}) {
+            for (TerrainChunk[][] layer : chunks) {
+                for (TerrainChunk[] column : layer) {
+                    for (TerrainChunk chunk : column) {
+                        if (chunk != null && chunk.getBuffer() != null) {
+                            packet.getGeometryReleases().add(chunk.getBuffer());
+                        }
+                    }
+                }
+            }
+        }
+        dirtyChunks.clear();
+        drawnChunks.clear();
+    }
+
+    public long getBakedTiles() {
+        return bakedTiles;
+    }
+
+    public long getFallbackTiles() {
+        return fallbackTiles;
+    }
+
+    public long getRebuilds() {
+        return rebuilds;
+    }
+
+    public int getChunkDraws() {
+        return chunkDraws;
+    }
+
+    public int getCulledChunks() {
+        return culledChunks;
+    }
+}
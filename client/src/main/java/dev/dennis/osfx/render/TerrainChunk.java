@@ -0,0 +1,108 @@
+package dev.dennis.osfx.render;
+
+public class TerrainChunk {
+    private final int generation;
+
+    private final int chunkX;
+
+    private final int chunkY;
+
+    private final Object[] slotTiles;
+
+    private final long[] slotStamps;
+
+    private final VertexJob[] slotJobs;
+
+    private TerrainChunkBuffer buffer;
+
+    private long drawnMask;
+
+    private int minHeight = Integer.MAX_VALUE;
+
+    private int maxHeight = Integer.MIN_VALUE;
+
+    private boolean dirty;
+
+    private boolean building;
+
+    public TerrainChunk(int generation, int chunkX, int chunkY, int slotCount) {
+        this.generation = generation;
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+        this.slotTiles = new Object[slotCount];
+        this.slotStamps = new long[slotCount];
+        this.slotJobs = new VertexJob[slotCount];
+    }
+
+    public boolean matches(int slot, Object tile, long stamp) {
+        return slotTiles[slot] == tile && slotStamps[slot] == stamp;
+    }
+
+    public void setSlot(int slot, Object tile, long stamp, VertexJob job) {
+        slotTiles[slot] = tile;
+        slotStamps[slot] = stamp;
+        slotJobs[slot] = job;
+    }
+
+    // Only ever grows, so it stays a bound for buffers built from earlier tiles
+    public void includeHeights(int minHeight, int maxHeight) {
+        this.minHeight = Math.min(this.minHeight, minHeight);
+        this.maxHeight = Math.max(this.maxHeight, maxHeight);
+    }
+
+    public TerrainChunkBuffer createBuffer() {
+        return new TerrainChunkBuffer(this, slotTiles.clone(), slotStamps.clone(), slotJobs.clone());
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    public int getChunkY() {
+        return chunkY;
+    }
+
+    public TerrainChunkBuffer getBuffer() {
+        return buffer;
+    }
+
+    public void setBuffer(TerrainChunkBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public long getDrawnMask() {
+        return drawnMask;
+    }
+
+    public void setDrawnMask(long drawnMask) {
+        this.drawnMask = drawnMask;
+    }
+
+    public int getMinHeight() {
+        return minHeight;
+    }
+
+    public int getMaxHeight() {
+        return maxHeight;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    public void setDirty(boolean dirty) {
+        this.dirty = dirty;
+    }
+
+    public boolean isBuilding() {
+        return building;
+    }
+
+    public void setBuilding(boolean building) {
+        this.building = building;
+    }
+}
@@ -0,0 +1,97 @@
+package dev.dennis.osfx.render;
+
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+public class TerrainChunkBuffer implements StaticGeometry {
+    private final TerrainChunk chunk;
+
+    private final Object[] slotTiles;
+
+    private final long[] slotStamps;
+
+    private final VertexJob[] slotJobs;
+
+    private final int[] slotVertexStarts;
+
+    private final int[] slotVertexCounts;
+
+    private ByteBuffer vertices;
+
+    private int vertexCount;
+
+    private volatile short vertexBufferId;
+
+    public TerrainChunkBuffer(TerrainChunk chunk, Object[] slotTiles, long[] slotStamps, VertexJob[] slotJobs) {
+        this.chunk = chunk;
+        this.slotTiles = slotTiles;
+        this.slotStamps = slotStamps;
+        this.slotJobs = slotJobs;
+        this.slotVertexStarts = new int[slotJobs.length];
+        this.slotVertexCounts = new int[slotJobs.length];
+        this.vertexBufferId = -1;
+    }
+
+    public void build(SceneVertexFormat vertexFormat) {
+        int vertexStride = vertexFormat.getStride();
+        for (int slot = 0; slot < slotJobs.length; slot++) {
+            slotVertexStarts[slot] = vertexCount;
+            if (slotJobs[slot] != null) {
+                slotVertexCounts[slot] = slotJobs[slot].getVertexCount();
+                vertexCount += slotVertexCounts[slot];
+            }
+        }
+
+        vertices = MemoryUtil.memAlloc(Math.max(1, vertexCount) * vertexStride);
+        long address = MemoryUtil.memAddress(vertices);
+        for (int slot = 0; slot < slotJobs.length; slot++) {
+            if (slotVertexCounts[slot] > 0) {
+                slotJobs[slot].encode(MemoryUtil.memByteBuffer(address + (long) slotVertexStarts[slot] * vertexStride,
+                        slotVertexCounts[slot] * vertexStride), vertexFormat);
+            }
+        }
+        vertices.limit(vertexCount * vertexStride);
+    }
+
+    public boolean matches(int slot, Object tile, long stamp) {
+        return slotTiles[slot] == tile && slotStamps[slot] == stamp;
+    }
+
+    public void freeVertices() {
+        if (vertices != null) {
+            MemoryUtil.memFree(vertices);
+            vertices = null;
+        }
+    }
+
+    public TerrainChunk getChunk() {
+        return chunk;
+    }
+
+    public int getSlotVertexStart(int slot) {
+        return slotVertexStarts[slot];
+    }
+
+    public int getSlotVertexCount(int slot) {
+        return slotVertexCounts[slot];
+    }
+
+    public ByteBuffer getVertices() {
+        return vertices;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    @Override
+    public short getVertexBufferId() {
+        return vertexBufferId;
+    }
+
+    @Override
+    public void setVertexBufferId(short vertexBufferId) {
+        this.vertexBufferId = vertexBufferId;
+    }
+}
@@ -0,0 +1,65 @@
+package dev.dennis.osfx.render;
+
+import dev.dennis.osfx.api.AbstractFont;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class TextRunCache {
+    private static final int MAX_ENTRIES = 4096;
+
+    private final Map<TextRunKey, RenderTextRunCommand> runs;
+
+    private final TextRunKey lookupKey;
+
+    private volatile long hits;
+
+    private volatile long misses;
+
+    private volatile long evictions;
+
+    private volatile int size;
+
+    public TextRunCache() {
+        this.runs = new LinkedHashMap<>(256, 0.75f, true);
+        this.lookupKey = new TextRunKey();
+    }
+
+    public RenderTextRunCommand get(AbstractFont font, String text, int x, int y) {
+        lookupKey.set(font, text, x, y);
+        return runs.get(lookupKey);
+    }
+
+    public void put(AbstractFont font, String text, int x, int y, RenderTextRunCommand run) {
+        runs.put(new TextRunKey(font, text, x, y), run);
+        misses++;
+        if (runs.size() > MAX_ENTRIES) {
+            Iterator<RenderTextRunCommand> iterator = runs.values().iterator();
+            iterator.next();
+            iterator.remove();
+            evictions++;
+        }
+        size = runs.size();
+    }
+
+    public void countHit() {
+        hits++;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
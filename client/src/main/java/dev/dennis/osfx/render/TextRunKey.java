@@ -0,0 +1,63 @@
+package dev.dennis.osfx.render;
+
+import dev.dennis.osfx.api.AbstractFont;
+
+public class TextRunKey {
+    private AbstractFont font;
+
+    private String text;
+
+    private int x;
+
+    private int y;
+
+    public TextRunKey() {
+    }
+
+    public TextRunKey(AbstractFont font, String text, int x, int y) {
+        set(font, text, x, y);
+    }
+
+    public void set(AbstractFont font, String text, int x, int y) {
+        this.font = font;
+        this.text = text;
+        this.x = x;
+        this.y = y;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TextRunKey)) {
+            return false;
+        }
+        TextRunKey key = (TextRunKey) o;
+        return font == key.font && x == key.x && y == key.y && text.equals(key.text);
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = System.identityHashCode(font);
+        hash = hash * 31 + text.hashCode();
+        hash = hash * 31 + x;
+        return hash * 31 + y;
+    }
+
+    public AbstractFont getFont() {
+        return font;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public int getX() {
+        return x;
+    }
+
+    public int getY() {
+        return y;
+    }
+}
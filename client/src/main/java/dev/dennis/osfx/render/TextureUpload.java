@@ -0,0 +1,29 @@
+package dev.dennis.osfx.render;
+
+import java.nio.IntBuffer;
+
+public class TextureUpload {
+    private final int layer;
+
+    private final int size;
+
+    private final IntBuffer pixelsBuf;
+
+    public TextureUpload(int layer, int size, IntBuffer pixelsBuf) {
+        this.layer = layer;
+        this.size = size;
+        this.pixelsBuf = pixelsBuf;
+    }
+
+    public int getLayer() {
+        return layer;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public IntBuffer getPixelsBuf() {
+        return pixelsBuf;
+    }
+}
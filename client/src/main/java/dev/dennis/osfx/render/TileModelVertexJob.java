@@ -0,0 +1,113 @@
+package dev.dennis.osfx.render;
+
+import dev.dennis.osfx.api.SceneTileModel;
+
+import java.nio.ByteBuffer;
+
+public class TileModelVertexJob extends VertexJob {
+    private static final int LOCAL_TILE_SIZE = 128;
+
+    private static final int INVALID_TILE_COLOR = 12345678;
+
+    private int[] verticesX;
+
+    private int[] verticesY;
+
+    private int[] verticesZ;
+
+    private int[] colorsA;
+
+    private int[] colorsB;
+
+    private int[] colorsC;
+
+    private int[] indicesA;
+
+    private int[] indicesB;
+
+    private int[] indicesC;
+
+    private int[] textureIds;
+
+    private int[] colorPalette;
+
+    private int localX;
+
+    private int localY;
+
+    private int originX;
+
+    private int originY;
+
+    public void set(SceneTileModel tile, int[] colorPalette, int localX, int localY) {
+        set(tile, colorPalette, localX, localY, localX, localY);
+    }
+
+    public void set(SceneTileModel tile, int[] colorPalette, int localX, int localY, int originX, int originY) {
+        // Tile geometry is built once per region load and never modified in place
+        this.verticesX = tile.getVerticesX();
+        this.verticesY = tile.getVerticesY();
+        this.verticesZ = tile.getVerticesZ();
+        this.colorsA = tile.getColorsA();
+        this.colorsB = tile.getColorsB();
+        this.colorsC = tile.getColorsC();
+        this.indicesA = tile.getIndicesA();
+        this.indicesB = tile.getIndicesB();
+        this.indicesC = tile.getIndicesC();
+        this.textureIds = tile.getTextureIds();
+        this.colorPalette = colorPalette;
+        this.localX = localX;
+        this.localY = localY;
+        this.originX = originX;
+        this.originY = originY;
+    }
+
+    @Override
+    public int getVertexCount() {
+        return indicesA.length * 3;
+    }
+
+    @Override
+    public void encode(ByteBuffer vertex, SceneVertexFormat format) {
+        int triangleCount = indicesA.length;
+        for (int i = 0; i < triangleCount; i++) {
+            int a = indicesA[i];
+            int b = indicesB[i];
+            int c = indicesC[i];
+
+            int colorA = colorsA[i];
+            int colorB = colorsB[i];
+            int colorC = colorsC[i];
+
+            if (colorA == INVALID_TILE_COLOR) {
+                addDegenerateTriangle(vertex, format);
+                continue;
+            }
+
+            int vertexXA = verticesX[a] - localX;
+            int vertexZA = verticesZ[a] - localY;
+
+            int vertexXB = verticesX[b] - localX;
+            int vertexZB = verticesZ[b] - localY;
+
+            int vertexXC = verticesX[c] - localX;
+            int vertexZC = verticesZ[c] - localY;
+
+            int textureId = 0;
+            if (textureIds != null) {
+                textureId = textureIds[i] + 1;
+            }
+
+            // Texture coordinates stay relative to the tile even when positions are relative to a terrain chunk
+            format.putVertex(vertex, verticesX[a] - originX, verticesY[a], verticesZ[a] - originY,
+                    SceneVertexFormat.packColor(colorPalette, colorA, 0xFF),
+                    (float) vertexXA / LOCAL_TILE_SIZE, (float) vertexZA / LOCAL_TILE_SIZE, textureId);
+            format.putVertex(vertex, verticesX[b] - originX, verticesY[b], verticesZ[b] - originY,
+                    SceneVertexFormat.packColor(colorPalette, colorB, 0xFF),
+                    (float) vertexXB / LOCAL_TILE_SIZE, (float) vertexZB / LOCAL_TILE_SIZE, textureId);
+            format.putVertex(vertex, verticesX[c] - originX, verticesY[c], verticesZ[c] - originY,
+                    SceneVertexFormat.packColor(colorPalette, colorC, 0xFF),
+                    (float) vertexXC / LOCAL_TILE_SIZE, (float) vertexZC / LOCAL_TILE_SIZE, textureId);
+        }
+    }
+}
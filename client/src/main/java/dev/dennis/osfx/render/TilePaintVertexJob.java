@@ -0,0 +1,77 @@
+package dev.dennis.osfx.render;
+
+import java.nio.ByteBuffer;
+
+public class TilePaintVertexJob extends VertexJob {
+    private static final int LOCAL_TILE_SIZE = 128;
+
+    private int swHeight;
+
+    private int seHeight;
+
+    private int neHeight;
+
+    private int nwHeight;
+
+    private int swColor;
+
+    private int seColor;
+
+    private int neColor;
+
+    private int nwColor;
+
+    private int textureId;
+
+    private int offsetX;
+
+    private int offsetZ;
+
+    public void set(int swHeight, int seHeight, int neHeight, int nwHeight, int swColor, int seColor, int neColor,
+                    int nwColor, int textureId) {
+        set(swHeight, seHeight, neHeight, nwHeight, swColor, seColor, neColor, nwColor, textureId, 0, 0);
+    }
+
+    public void set(int swHeight, int seHeight, int neHeight, int nwHeight, int swColor, int seColor, int neColor,
+                    int nwColor, int textureId, int offsetX, int offsetZ) {
+        this.swHeight = swHeight;
+        this.seHeight = seHeight;
+        this.neHeight = neHeight;
+        this.nwHeight = nwHeight;
+        this.swColor = swColor;
+        this.seColor = seColor;
+        this.neColor = neColor;
+        this.nwColor = nwColor;
+        this.textureId = textureId;
+        this.offsetX = offsetX;
+        this.offsetZ = offsetZ;
+    }
+
+    @Override
+    public int getVertexCount() {
+        return 6;
+    }
+
+    @Override
+    public void encode(ByteBuffer vertex, SceneVertexFormat format) {
+        int vertexSwX = offsetX;
+        int vertexSwY = offsetZ;
+
+        int vertexNwX = offsetX;
+        int vertexNwY = offsetZ + LOCAL_TILE_SIZE;
+
+        int vertexNeX = offsetX + LOCAL_TILE_SIZE;
+        int vertexNeY = offsetZ + LOCAL_TILE_SIZE;
+
+        int vertexSeX = offsetX + LOCAL_TILE_SIZE;
+        int vertexSeY = offsetZ;
+
+        format.putVertex(vertex, vertexSeX, seHeight, vertexSeY, seColor, 1.0f, 0.0f, textureId);
+        format.putVertex(vertex, vertexNwX, nwHeight, vertexNwY, nwColor, 0.0f, 1.0f, textureId);
+        format.putVertex(vertex, vertexSwX, swHeight, vertexSwY, swColor, 0.0f, 0.0f, textureId);
+
+        format.putVertex(vertex, vertexSeX, seHeight, vertexSeY, seColor, 1.0f, 0.0f, textureId);
+        format.putVertex(vertex, vertexNeX, neHeight, vertexNeY, neColor, 1.0f, 1.0f, textureId);
+        format.putVertex(vertex, vertexNwX, nwHeight, vertexNwY, nwColor, 0.0f, 1.0f, textureId);
+    }
+}
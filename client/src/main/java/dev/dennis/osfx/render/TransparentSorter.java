@@ -0,0 +1,109 @@
+package dev.dennis.osfx.render;
+
+import org.joml.Matrix4fc;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+public class TransparentSorter {
+    private static final float RS_TO_RADIANS = (float) (Math.PI * 2.0 / 2048.0);
+
+    private static final int PRIORITY_BITS = 4;
+
+    private static final int MAX_DEPTH = (1 << 22) - 1;
+
+    private static final float DEPTH_SCALE = 16.0f;
+
+    private static final double STATS_SMOOTHING = 0.05;
+
+    private static final double NANOS_TO_MILLIS = 1.0 / 1_000_000.0;
+
+    private final RadixSorter sorter;
+
+    private int[] triangleCommands = new int[1024];
+
+    private int[] triangleIndices = new int[1024];
+
+    private float[] commandSines = new float[64];
+
+    private float[] commandCosines = new float[64];
+
+    private volatile int triangleCount;
+
+    private volatile double sortMillis;
+
+    public TransparentSorter() {
+        this.sorter = new RadixSorter();
+    }
+
+    public int encode(FramePacket packet, Matrix4fc viewProjection) {
+        long start = System.nanoTime();
+
+        List<RenderModelCommand> commands = packet.getTransparentModelCommands();
+        if (commandSines.length < commands.size()) {
+            commandSines = new float[Math.max(commands.size(), commandSines.length * 2)];
+            commandCosines = new float[commandSines.length];
+        }
+
+        sorter.clear();
+        int count = 0;
+        for (int command = 0; command < commands.size(); command++) {
+            RenderModelCommand modelCommand = commands.get(command);
+            ModelVertexJob job = (ModelVertexJob) modelCommand.getJob();
+            float angle = modelCommand.getRotation() * RS_TO_RADIANS;
+            float sin = (float) Math.sin(angle);
+            float cos = (float) Math.cos(angle);
+            commandSines[command] = sin;
+            commandCosines[command] = cos;
+
+            for (int i = 0; i < job.getTriangleCount(); i++) {
+                if (!job.isTransparent(i)) {
+                    continue;
+                }
+                float depth = job.getTriangleDepth(i, sin, cos, modelCommand.getX(), modelCommand.getY(),
+                        modelCommand.getZ(), viewProjection);
+                // Farthest first, and within equal depth the client's lower priorities are drawn first
+                int depthKey = MAX_DEPTH - (int) Math.max(0.0f, Math.min(MAX_DEPTH, depth * DEPTH_SCALE));
+                if (count == triangleCommands.length) {
+                    triangleCommands = copyOf(triangleCommands, count * 2);
+                    triangleIndices = copyOf(triangleIndices, count * 2);
+                }
+                triangleCommands[count] = command;
+                triangleIndices[count] = i;
+                sorter.add(depthKey << PRIORITY_BITS | job.getTrianglePriority(i), count);
+                count++;
+            }
+        }
+        sorter.sort();
+
+        SceneVertexFormat format = packet.getVertexFormat();
+        ByteBuffer vertices = packet.allocateTransparentVertices(count * 3);
+        for (int i = 0; i < count; i++) {
+            int triangle = sorter.getValue(i);
+            int command = triangleCommands[triangle];
+            RenderModelCommand modelCommand = commands.get(command);
+            ((ModelVertexJob) modelCommand.getJob()).encodeTriangle(vertices, format, triangleIndices[triangle],
+                    commandSines[command], commandCosines[command], modelCommand.getX(), modelCommand.getY(),
+                    modelCommand.getZ());
+        }
+
+        triangleCount = count;
+        double elapsed = (System.nanoTime() - start) * NANOS_TO_MILLIS;
+        sortMillis = sortMillis == 0.0 ? elapsed : sortMillis + (elapsed - sortMillis) * STATS_SMOOTHING;
+        return count;
+    }
+
+    private static int[] copyOf(int[] array, int capacity) {
+        int[] copy = new int[capacity];
+        System.arraycopy(array, 0, copy, 0, array.length);
+        return copy;
+    }
+
+    public int getTriangleCount() {
+        return triangleCount;
+    }
+
+    public double getSortMillis() {
+        return sortMillis;
+    }
+}
@@ -0,0 +1,292 @@
+package dev.dennis.osfx.render;
+
+import org.lwjgl.bgfx.BGFXTransientIndexBuffer;
+import org.lwjgl.bgfx.BGFXTransientVertexBuffer;
+import org.lwjgl.bgfx.BGFXVertexLayout;
+import org.lwjgl.system.MemoryStack;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.bgfx.BGFX.*;
+
+public class UiBatcher {
+    public static final long STATE = BGFX_STATE_WRITE_RGB | BGFX_STATE_WRITE_A | BGFX_STATE_BLEND_ALPHA;
+
+    public static final int NO_SCISSOR = -1;
+
+    // Coverage is accumulated separately, which leaves region targets holding premultiplied colour
+    public static final long REGION_STATE = BGFX_STATE_WRITE_RGB | BGFX_STATE_WRITE_A
+            | BGFX_STATE_BLEND_FUNC_SEPARATE(BGFX_STATE_BLEND_SRC_ALPHA, BGFX_STATE_BLEND_INV_SRC_ALPHA,
+            BGFX_STATE_BLEND_ONE, BGFX_STATE_BLEND_INV_SRC_ALPHA);
+
+    public static final long PREMULTIPLIED_STATE = BGFX_STATE_WRITE_RGB | BGFX_STATE_WRITE_A
+            | BGFX_STATE_BLEND_FUNC(BGFX_STATE_BLEND_ONE, BGFX_STATE_BLEND_INV_SRC_ALPHA);
+
+    public static final int QUAD_SIZE = 4 * 24;
+
+    // Keeps a full batch well inside bgfx's transient buffers, which the rest of the frame shares
+    private static final int MAX_QUADS = 4096;
+
+    private final BGFXVertexLayout layout;
+
+    private final int view;
+
+    private int targetView;
+
+    private boolean regionTarget;
+
+    private final short defaultProgram;
+
+    private final int maxQuads;
+
+    private final ByteBuffer vertices;
+
+    private final ByteBuffer indices;
+
+    private long encoder;
+
+    private short program;
+
+    private short textureId;
+
+    private short paletteTextureId;
+
+    private short paletteProgram;
+
+    private short paletteUniform;
+
+    private long state;
+
+    private int scissorX;
+
+    private int scissorY;
+
+    private int scissorWidth;
+
+    private int scissorHeight;
+
+    private int quadCount;
+
+    private int frameQuads;
+
+    private int frameDrawCalls;
+
+    private int frameLargestBatch;
+
+    private volatile int lastQuads;
+
+    private volatile int lastDrawCalls;
+
+    private volatile int lastLargestBatch;
+
+    public UiBatcher(BGFXVertexLayout layout, int view, short defaultProgram, boolean batching) {
+        this.layout = layout;
+        this.view = view;
+        this.targetView = view;
+        this.defaultProgram = defaultProgram;
+        this.paletteProgram = -1;
+        this.paletteUniform = -1;
+        // Without batching every quad is flushed on its own, the same as drawing it directly
+        this.maxQuads = batching ? MAX_QUADS : 1;
+        this.vertices = MemoryUtil.memAlloc(MAX_QUADS * QUAD_SIZE);
+        this.indices = MemoryUtil.memAlloc(MAX_QUADS * 6 * Short.BYTES);
+        for (int i = 0; i < MAX_QUADS; i++) {
+            int vertex = i * 4;
+            indices.putShort((short) vertex);
+            indices.putShort((short) (vertex + 2));
+            indices.putShort((short) (vertex + 1));
+            indices.putShort((short) vertex);
+            indices.putShort((short) (vertex + 3));
+            indices.putShort((short) (vertex + 2));
+        }
+        indices.flip();
+    }
+
+    public static void putQuad(ByteBuffer vertex, float x, float y, float width, float height, int rgb, int alpha,
+                               float minU, float minV, float maxU, float maxV) {
+        float maxX = x + width;
+        float maxY = y + height;
+        int abgr = SceneVertexFormat.packColor(rgb, alpha);
+        putVertex(vertex, x, y, abgr, minU, minV);
+        putVertex(vertex, maxX, y, abgr, maxU, minV);
+        putVertex(vertex, maxX, maxY, abgr, maxU, maxV);
+        putVertex(vertex, x, maxY, abgr, minU, maxV);
+    }
+
+    private static void putVertex(ByteBuffer vertex, float x, float y, int abgr, float u, float v) {
+        vertex.putFloat(x);
+        vertex.putFloat(y);
+        vertex.putFloat(0.0f);
+        vertex.putInt(abgr);
+        vertex.putFloat(u);
+        vertex.putFloat(v);
+    }
+
+    public void begin(long encoder) {
+        this.encoder = encoder;
+        lastQuads = frameQuads;
+        lastDrawCalls = frameDrawCalls;
+        lastLargestBatch = frameLargestBatch;
+        frameQuads = 0;
+        frameDrawCalls = 0;
+        frameLargestBatch = 0;
+    }
+
+    public void addQuad(short textureId, int scissorX, int scissorY, int scissorWidth, int scissorHeight, float x,
+                        float y, float width, float height, int rgb, int alpha, float minU, float minV, float maxU,
+                        float maxV) {
+        addQuad(defaultProgram, textureId, STATE, scissorX, scissorY, scissorWidth, scissorHeight, x, y, width,
+                height, rgb, alpha, minU, minV, maxU, maxV);
+    }
+
+    public void addQuad(short program, short textureId, long state, int scissorX, int scissorY, int scissorWidth,
+                        int scissorHeight, float x, float y, float width, float height, int rgb, int alpha,
+                        float minU, float minV, float maxU, float maxV) {
+        addQuad(program, textureId, (short) -1, state, scissorX, scissorY, scissorWidth, scissorHeight, x, y, width,
+                height, rgb, alpha, minU, minV, maxU, maxV);
+    }
+
+    public void addPaletteQuad(short indexTextureId, short paletteTextureId, int scissorX, int scissorY,
+                               int scissorWidth, int scissorHeight, float x, float y, float width, float height) {
+        addQuad(paletteProgram, indexTextureId, paletteTextureId, STATE, scissorX, scissorY, scissorWidth,
+                scissorHeight, x, y, width, height, 0xFFFFFF, 0xFF, 0.0f, 0.0f, 1.0f, 1.0f);
+    }
+
+    private void addQuad(short program, short textureId, short paletteTextureId, long state, int scissorX,
+                         int scissorY, int scissorWidth, int scissorHeight, float x, float y, float width,
+                         float height, int rgb, int alpha, float minU, float minV, float maxU, float maxV) {
+        // Quads are only merged with the ones right before them, so the draw order never changes
+        if (quadCount > 0 && (program != this.program || textureId != this.textureId
+                || paletteTextureId != this.paletteTextureId || state != this.state || scissorX != this.scissorX
+                || scissorY != this.scissorY || scissorWidth != this.scissorWidth
+                || scissorHeight != this.scissorHeight)) {
+            flush();
+        }
+        this.program = program;
+        this.textureId = textureId;
+        this.paletteTextureId = paletteTextureId;
+        this.state = state;
+        this.scissorX = scissorX;
+        this.scissorY = scissorY;
+        this.scissorWidth = scissorWidth;
+        this.scissorHeight = scissorHeight;
+
+        putQuad(vertices, x, y, width, height, rgb, alpha, minU, minV, maxU, maxV);
+        quadCount++;
+        if (quadCount == maxQuads) {
+            flush();
+        }
+    }
+
+    // A block of prebuilt quads is copied in whole, and stays one draw call even without batching
+    public void addQuads(short textureId, int scissorX, int scissorY, int scissorWidth, int scissorHeight,
+                         ByteBuffer quads, int count) {
+        if (quadCount > 0 && (defaultProgram != this.program || textureId != this.textureId
+                || this.paletteTextureId != -1 || STATE != this.state || scissorX != this.scissorX
+                || scissorY != this.scissorY || scissorWidth != this.scissorWidth
+                || scissorHeight != this.scissorHeight)) {
+            flush();
+        }
+        this.program = defaultProgram;
+        this.textureId = textureId;
+        this.paletteTextureId = -1;
+        this.state = STATE;
+        this.scissorX = scissorX;
+        this.scissorY = scissorY;
+        this.scissorWidth = scissorWidth;
+        this.scissorHeight = scissorHeight;
+
+        ByteBuffer block = quads.duplicate();
+        for (int start = 0; start < count; ) {
+            int copied = Math.min(count - start, MAX_QUADS - quadCount);
+            block.limit((start + copied) * QUAD_SIZE).position(start * QUAD_SIZE);
+            vertices.put(block);
+            quadCount += copied;
+            start += copied;
+            if (quadCount == MAX_QUADS) {
+                flush();
+            }
+        }
+        if (maxQuads == 1) {
+            flush();
+        }
+    }
+
+    public void flush() {
+        if (quadCount == 0) {
+            return;
+        }
+        int vertexCount = quadCount * 4;
+        int indexCount = quadCount * 6;
+        try (MemoryStack stack = MemoryStack.stackPush()) {
+            BGFXTransientVertexBuffer tvb = BGFXTransientVertexBuffer.callocStack(stack);
+            BGFXTransientIndexBuffer tib = BGFXTransientIndexBuffer.callocStack(stack);
+
+            if (bgfx_alloc_transient_buffers(tvb, layout, vertexCount, tib, indexCount)) {
+                MemoryUtil.memCopy(MemoryUtil.memAddress(vertices, 0), MemoryUtil.memAddress(tvb.data()),
+                        quadCount * QUAD_SIZE);
+                MemoryUtil.memCopy(MemoryUtil.memAddress(indices, 0), MemoryUtil.memAddress(tib.data()),
+                        indexCount * Short.BYTES);
+
+                // A region target is exactly the scissor it was recorded under
+                if (scissorWidth != NO_SCISSOR && !regionTarget) {
+                    bgfx_encoder_set_scissor(encoder, scissorX, scissorY, scissorWidth, scissorHeight);
+                }
+                if (paletteTextureId != -1) {
+                    // Palette indices must never be filtered into each other
+                    bgfx_encoder_set_texture(encoder, 0, (short) 0, textureId,
+                            BGFX_SAMPLER_POINT | BGFX_SAMPLER_UVW_CLAMP);
+                    bgfx_encoder_set_texture(encoder, 1, paletteUniform, paletteTextureId,
+                            BGFX_SAMPLER_POINT | BGFX_SAMPLER_UVW_CLAMP);
+                } else {
+                    bgfx_encoder_set_texture(encoder, 0, (short) 0, textureId, BGFX_SAMPLER_NONE);
+                }
+                bgfx_encoder_set_state(encoder, regionTarget && state == STATE ? REGION_STATE : state, 0);
+                bgfx_encoder_set_transient_vertex_buffer(encoder, 0, tvb, 0, vertexCount, BGFX_INVALID_HANDLE);
+                bgfx_encoder_set_transient_index_buffer(encoder, tib, 0, indexCount);
+                bgfx_encoder_submit(encoder, targetView, program, 0, false);
+            }
+        }
+
+        frameQuads += quadCount;
+        frameDrawCalls++;
+        frameLargestBatch = Math.max(frameLargestBatch, quadCount);
+        quadCount = 0;
+        vertices.clear();
+    }
+
+    public void free() {
+        MemoryUtil.memFree(vertices);
+        MemoryUtil.memFree(indices);
+    }
+
+    public void setRegionTarget(int regionView) {
+        flush();
+        targetView = regionView;
+        regionTarget = true;
+    }
+
+    public void clearRegionTarget() {
+        flush();
+        targetView = view;
+        regionTarget = false;
+    }
+
+    public void setPaletteProgram(short paletteProgram, short paletteUniform) {
+        this.paletteProgram = paletteProgram;
+        this.paletteUniform = paletteUniform;
+    }
+
+    public int getQuads() {
+        return lastQuads;
+    }
+
+    public int getDrawCalls() {
+        return lastDrawCalls;
+    }
+
+    public int getLargestBatch() {
+        return lastLargestBatch;
+    }
+}
@@ -0,0 +1,111 @@
+package dev.dennis.osfx.render;
+
+public class UiRegion {
+    private final int view;
+
+    private short frameBufferId;
+
+    private short textureId;
+
+    private int width;
+
+    private int height;
+
+    private int scissorX;
+
+    private int scissorY;
+
+    private int ordinal;
+
+    private long contentHash;
+
+    private long lastHash;
+
+    private long lastUsedFrame;
+
+    public UiRegion(int view) {
+        this.view = view;
+        this.frameBufferId = -1;
+        this.textureId = -1;
+    }
+
+    public boolean matches(RegionCommand command, int ordinal) {
+        return scissorX == command.getScissorX() && scissorY == command.getScissorY()
+                && width == command.getScissorWidth() && height == command.getScissorHeight()
+                && this.ordinal == ordinal;
+    }
+
+    public void assign(RegionCommand command, int ordinal) {
+        this.scissorX = command.getScissorX();
+        this.scissorY = command.getScissorY();
+        this.width = command.getScissorWidth();
+        this.height = command.getScissorHeight();
+        this.ordinal = ordinal;
+        this.contentHash = 0;
+        this.lastHash = 0;
+    }
+
+    public int getView() {
+        return view;
+    }
+
+    public short getFrameBufferId() {
+        return frameBufferId;
+    }
+
+    public void setFrameBufferId(short frameBufferId) {
+        this.frameBufferId = frameBufferId;
+    }
+
+    public short getTextureId() {
+        return textureId;
+    }
+
+    public void setTextureId(short textureId) {
+        this.textureId = textureId;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getScissorX() {
+        return scissorX;
+    }
+
+    public int getScissorY() {
+        return scissorY;
+    }
+
+    public int getOrdinal() {
+        return ordinal;
+    }
+
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(long contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public long getLastHash() {
+        return lastHash;
+    }
+
+    public void setLastHash(long lastHash) {
+        this.lastHash = lastHash;
+    }
+
+    public long getLastUsedFrame() {
+        return lastUsedFrame;
+    }
+
+    public void setLastUsedFrame(long lastUsedFrame) {
+        this.lastUsedFrame = lastUsedFrame;
+    }
+}
@@ -0,0 +1,259 @@
+package dev.dennis.osfx.render;
+
+import dev.dennis.osfx.Renderer;
+import org.joml.Matrix4f;
+import org.lwjgl.system.MemoryUtil;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.lwjgl.bgfx.BGFX.*;
+
+public class UiRegionCache {
+    public static final int REGION_COUNT = 32;
+
+    private static final int MIN_COMMANDS = 4;
+
+    private static final int MAX_IDLE_FRAMES = 120;
+
+    private static final long TARGET_FLAGS = BGFX_TEXTURE_RT | BGFX_SAMPLER_U_CLAMP | BGFX_SAMPLER_V_CLAMP;
+
+    private final UiRegion[] regions;
+
+    private final boolean homogeneousDepth;
+
+    private final boolean originBottomLeft;
+
+    private final Matrix4f matrix;
+
+    private final FloatBuffer matrixBuf;
+
+    private long[] segmentScissors;
+
+    private int segmentCount;
+
+    private long frame;
+
+    private int cachedRegions;
+
+    private long cachedArea;
+
+    private int redrawnRegions;
+
+    private long redrawnArea;
+
+    private volatile int lastCachedRegions;
+
+    private volatile long lastCachedArea;
+
+    private volatile int lastRedrawnRegions;
+
+    private volatile long lastRedrawnArea;
+
+    public UiRegionCache(int firstView, boolean homogeneousDepth, boolean originBottomLeft) {
+        this.regions = new UiRegion[REGION_COUNT];
+        for (int i = 0; i < REGION_COUNT; i++) {
+            regions[i] = new UiRegion(firstView + i);
+        }
+        this.homogeneousDepth = homogeneousDepth;
+        this.originBottomLeft = originBottomLeft;
+        this.matrix = new Matrix4f();
+        this.matrixBuf = MemoryUtil.memAllocFloat(16);
+        this.segmentScissors = new long[64];
+    }
+
+    public void render(Renderer renderer, long encoder, List<RenderCommand> commands, int canvasX, int canvasY) {
+        frame++;
+        segmentCount = 0;
+        cachedRegions = 0;
+        cachedArea = 0;
+        redrawnRegions = 0;
+        redrawnArea = 0;
+
+        // Consecutive commands under the same scissor form a segment, which is cached or drawn as a whole
+        int commandCount = commands.size();
+        int start = 0;
+        while (start < commandCount) {
+            RenderCommand command = commands.get(start);
+            if (!(command instanceof RegionCommand)) {
+                command.render(renderer, encoder);
+                start++;
+                continue;
+            }
+            RegionCommand first = (RegionCommand) command;
+            long hash = first.getContentHash();
+            int end = start + 1;
+            while (end < commandCount && commands.get(end) instanceof RegionCommand
+                    && isSameScissor(first, (RegionCommand) commands.get(end))) {
+                hash = hash * 31 + ((RegionCommand) commands.get(end)).getContentHash();
+                end++;
+            }
+
+            UiRegion region = null;
+            if (end - start >= MIN_COMMANDS && first.getScissorWidth() > 0 && first.getScissorHeight() > 0) {
+                region = findRegion(first, nextOrdinal(first));
+            }
+            if (region == null) {
+                renderDirect(renderer, encoder, commands, start, end);
+            } else {
+                renderRegion(renderer, encoder, commands, start, end, region, hash, canvasX, canvasY);
+            }
+            start = end;
+        }
+
+        for (UiRegion region : regions) {
+            if (region.getFrameBufferId() != -1 && frame - region.getLastUsedFrame() > MAX_IDLE_FRAMES) {
+                releaseTarget(region);
+            }
+        }
+
+        lastCachedRegions = cachedRegions;
+        lastCachedArea = cachedArea;
+        lastRedrawnRegions = redrawnRegions;
+        lastRedrawnArea = redrawnArea;
+    }
+
+    private void renderRegion(Renderer renderer, long encoder, List<RenderCommand> commands, int start, int end,
+                              UiRegion region, long hash, int canvasX, int canvasY) {
+        region.setLastUsedFrame(frame);
+        long area = (long) region.getWidth() * region.getHeight();
+        boolean cached = region.getFrameBufferId() != -1 && region.getContentHash() == hash;
+        boolean stable = region.getLastHash() == hash;
+        region.setLastHash(hash);
+        if (cached) {
+            cachedRegions++;
+            cachedArea += area;
+        } else {
+            redrawnRegions++;
+            redrawnArea += area;
+            // A segment that changed since the last frame is likely to change again, so it is not worth a target
+            if (!stable) {
+                renderDirect(renderer, encoder, commands, start, end);
+                return;
+            }
+            redrawRegion(renderer, encoder, commands, start, end, region, canvasX, canvasY);
+            region.setContentHash(hash);
+        }
+
+        float x = region.getScissorX() - canvasX;
+        float y = region.getScissorY() - canvasY;
+        float minV = originBottomLeft ? 1.0f : 0.0f;
+        float maxV = originBottomLeft ? 0.0f : 1.0f;
+        renderer.getUiBatcher().addQuad(renderer.getQuadProgram(), region.getTextureId(),
+                UiBatcher.PREMULTIPLIED_STATE, UiBatcher.NO_SCISSOR, UiBatcher.NO_SCISSOR, UiBatcher.NO_SCISSOR,
+                UiBatcher.NO_SCISSOR, x, y, region.getWidth(), region.getHeight(), 0xFFFFFF, 0xFF, 0.0f, minV,
+                1.0f, maxV);
+    }
+
+    private void redrawRegion(Renderer renderer, long encoder, List<RenderCommand> commands, int start, int end,
+                              UiRegion region, int canvasX, int canvasY) {
+        int width = region.getWidth();
+        int height = region.getHeight();
+        if (region.getFrameBufferId() == -1) {
+            short frameBufferId = bgfx_create_frame_buffer(width, height, BGFX_TEXTURE_FORMAT_BGRA8, TARGET_FLAGS);
+            region.setFrameBufferId(frameBufferId);
+            region.setTextureId(bgfx_get_texture(frameBufferId, 0));
+        }
+
+        int view = region.getView();
+        bgfx_set_view_frame_buffer(view, region.getFrameBufferId());
+        bgfx_set_view_rect(view, 0, 0, width, height);
+        bgfx_set_view_clear(view, BGFX_CLEAR_COLOR, 0x00000000, 1.0f, 0);
+        bgfx_set_view_mode(view, BGFX_VIEW_MODE_SEQUENTIAL);
+        float left = region.getScissorX() - canvasX;
+        float top = region.getScissorY() - canvasY;
+        matrix.setOrthoLH(left, left + width, top + height, top, 0.0f, 1.0f, !homogeneousDepth);
+        matrix.get(matrixBuf);
+        bgfx_set_view_transform(view, null, matrixBuf);
+
+        UiBatcher batcher = renderer.getUiBatcher();
+        batcher.setRegionTarget(view);
+        renderDirect(renderer, encoder, commands, start, end);
+        batcher.clearRegionTarget();
+    }
+
+    private static void renderDirect(Renderer renderer, long encoder, List<RenderCommand> commands, int start,
+                                     int end) {
+        for (int i = start; i < end; i++) {
+            commands.get(i).render(renderer, encoder);
+        }
+    }
+
+    private UiRegion findRegion(RegionCommand command, int ordinal) {
+        UiRegion oldest = null;
+        for (UiRegion region : regions) {
+            if (region.getLastUsedFrame() != 0 && region.matches(command, ordinal)) {
+                return region;
+            }
+            if (region.getLastUsedFrame() != frame
+                    && (oldest == null || region.getLastUsedFrame() < oldest.getLastUsedFrame())) {
+                oldest = region;
+            }
+        }
+        if (oldest == null) {
+            return null;
+        }
+        // Taking over a slot keeps its target only if the size still fits
+        if (oldest.getFrameBufferId() != -1 && (oldest.getWidth() != command.getScissorWidth()
+                || oldest.getHeight() != command.getScissorHeight())) {
+            releaseTarget(oldest);
+        }
+        oldest.assign(command, ordinal);
+        return oldest;
+    }
+
+    private int nextOrdinal(RegionCommand command) {
+        // The same scissor can come back later in a frame, and each occurrence is a region of its own
+        long scissor = (long) command.getScissorX() << 48 | (long) (command.getScissorY() & 0xFFFF) << 32
+                | (long) (command.getScissorWidth() & 0xFFFF) << 16 | command.getScissorHeight() & 0xFFFF;
+        int ordinal = 0;
+        for (int i = 0; i < segmentCount; i++) {
+            if (segmentScissors[i] == scissor) {
+                ordinal++;
+            }
+        }
+        if (segmentCount == segmentScissors.length) {
+            segmentScissors = Arrays.copyOf(segmentScissors, segmentCount * 2);
+        }
+        segmentScissors[segmentCount++] = scissor;
+        return ordinal;
+    }
+
+    private static void releaseTarget(UiRegion region) {
+        bgfx_set_view_frame_buffer(region.getView(), (short) -1);
+        bgfx_destroy_frame_buffer(region.getFrameBufferId());
+        region.setFrameBufferId((short) -1);
+        region.setTextureId((short) -1);
+    }
+
+    private static boolean isSameScissor(RegionCommand a, RegionCommand b) {
+        return a.getScissorX() == b.getScissorX() && a.getScissorY() == b.getScissorY()
+                && a.getScissorWidth() == b.getScissorWidth() && a.getScissorHeight() == b.getScissorHeight();
+    }
+
+    public void free() {
+        for (UiRegion region : regions) {
+            if (region.getFrameBufferId() != -1) {
+                bgfx_destroy_frame_buffer(region.getFrameBufferId());
+            }
+        }
+        MemoryUtil.memFree(matrixBuf);
+    }
+
+    public int getCachedRegions() {
+        return lastCachedRegions;
+    }
+
+    public long getCachedArea() {
+        return lastCachedArea;
+    }
+
+    public int getRedrawnRegions() {
+        return lastRedrawnRegions;
+    }
+
+    public long getRedrawnArea() {
+        return lastRedrawnArea;
+    }
+}
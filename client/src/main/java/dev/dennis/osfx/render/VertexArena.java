@@ -0,0 +1,126 @@
+package dev.dennis.osfx.render;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+public class VertexArena {
+    public static final int PAGE_VERTICES = 0x10000;
+
+    private static final int PAGE_SHIFT = 16;
+
+    private final int vertexStride;
+
+    private final List<VertexPage> pages;
+
+    private int pageCount;
+
+    private int vertexCount;
+
+    private int highWaterPages;
+
+    private int allocatedPages;
+
+    private static int getPageOffset(int vertexStart) {
+        return vertexStart & PAGE_VERTICES - 1;
+    }
+
+    private static int getPageIndex(int vertexStart) {
+        return vertexStart >>> PAGE_SHIFT;
+    }
+
+    public VertexArena(int vertexStride, int initialPageCount) {
+        this.vertexStride = vertexStride;
+        this.pages = new ArrayList<>();
+        for (int i = 0; i < initialPageCount; i++) {
+            pages.add(new VertexPage(PAGE_VERTICES, vertexStride));
+        }
+    }
+
+    // Starts encode the page in the high bits, so a range never spans two pages and growing never copies
+    public int reserve(int vertexCount) {
+        VertexPage page = pageCount > 0 ? pages.get(pageCount - 1) : null;
+        if (page == null || page.getVertexCount() >= PAGE_VERTICES || page.getRemaining() < vertexCount) {
+            page = nextPage(vertexCount);
+        }
+        this.vertexCount += vertexCount;
+        return pageCount - 1 << PAGE_SHIFT | page.reserve(vertexCount);
+    }
+
+    private VertexPage nextPage(int vertexCount) {
+        if (pageCount == pages.size() || pages.get(pageCount).getCapacity() < vertexCount) {
+            // Ranges larger than a page get a dedicated page, which they always start at offset 0
+            pages.add(pageCount, new VertexPage(Math.max(PAGE_VERTICES, vertexCount), vertexStride));
+            allocatedPages++;
+        }
+        VertexPage page = pages.get(pageCount++);
+        highWaterPages = Math.max(highWaterPages, pageCount);
+        return page;
+    }
+
+    public ByteBuffer getSlice(int vertexStart, int vertexCount) {
+        return pages.get(getPageIndex(vertexStart)).getSlice(getPageOffset(vertexStart), vertexCount);
+    }
+
+    public ByteBuffer getEncodeBuffer(int vertexStart, int vertexCount) {
+        return pages.get(getPageIndex(vertexStart)).getEncodeBuffer(getPageOffset(vertexStart), vertexCount);
+    }
+
+    public void resetPacked() {
+        for (int i = 0; i < pageCount; i++) {
+            pages.get(i).resetPacked();
+        }
+    }
+
+    public int pack(int vertexStart, int vertexCount) {
+        int pageIndex = getPageIndex(vertexStart);
+        return pageIndex << PAGE_SHIFT | pages.get(pageIndex).pack(getPageOffset(vertexStart), vertexCount);
+    }
+
+    public int getUploadVertexStart(int vertexStart) {
+        return pages.get(getPageIndex(vertexStart)).getUploadVertexStart() + getPageOffset(vertexStart);
+    }
+
+    public void reset() {
+        for (int i = 0; i < pageCount; i++) {
+            pages.get(i).reset();
+        }
+        pageCount = 0;
+        vertexCount = 0;
+    }
+
+    public void free() {
+        for (VertexPage page : pages) {
+            page.free();
+        }
+        pages.clear();
+    }
+
+    public VertexPage getPage(int index) {
+        return pages.get(index);
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getPackedVertexCount() {
+        int packedVertexCount = 0;
+        for (int i = 0; i < pageCount; i++) {
+            packedVertexCount += pages.get(i).getPackedVertexCount();
+        }
+        return packedVertexCount;
+    }
+
+    public int getHighWaterPages() {
+        return highWaterPages;
+    }
+
+    public int getAllocatedPages() {
+        return allocatedPages;
+    }
+}
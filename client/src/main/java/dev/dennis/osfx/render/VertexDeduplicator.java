@@ -0,0 +1,89 @@
+package dev.dennis.osfx.render;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class VertexDeduplicator {
+    public static final int MAX_SHORT_INDEX_VERTICES = 0x10000;
+
+    private static final ThreadLocal<VertexDeduplicator> INSTANCES = ThreadLocal.withInitial(VertexDeduplicator::new);
+
+    private int[] table = new int[0];
+
+    public static VertexDeduplicator get() {
+        return INSTANCES.get();
+    }
+
+    public static boolean isWideIndices(int vertexCount) {
+        return vertexCount > MAX_SHORT_INDEX_VERTICES;
+    }
+
+    // Offsets are absolute, so the buffers' positions are left alone for other jobs packing into them
+    public int deduplicate(ByteBuffer vertices, int vertexOffset, int vertexCount, int stride, ByteBuffer indices,
+                           int indexOffset, boolean wideIndices) {
+        if (vertexCount == 0) {
+            return 0;
+        }
+
+        int tableSize = Integer.highestOneBit(vertexCount) << 2;
+        int mask = tableSize - 1;
+        if (table.length < tableSize) {
+            table = new int[tableSize];
+        }
+        Arrays.fill(table, 0, tableSize, -1);
+
+        // Unique vertices are moved down in place, which never overwrites a vertex that hasn't been read yet
+        int uniqueCount = 0;
+        for (int i = 0; i < vertexCount; i++) {
+            int offset = vertexOffset + i * stride;
+            int slot = hash(vertices, offset, stride) & mask;
+            int index;
+            while (true) {
+                index = table[slot];
+                if (index == -1) {
+                    index = uniqueCount++;
+                    table[slot] = index;
+                    if (index != i) {
+                        copy(vertices, offset, vertexOffset + index * stride, stride);
+                    }
+                    break;
+                }
+                if (equals(vertices, vertexOffset + index * stride, offset, stride)) {
+                    break;
+                }
+                slot = slot + 1 & mask;
+            }
+            if (wideIndices) {
+                indices.putInt(indexOffset + (i << 2), index);
+            } else {
+                indices.putShort(indexOffset + (i << 1), (short) index);
+            }
+        }
+        return uniqueCount;
+    }
+
+    private static int hash(ByteBuffer vertices, int offset, int stride) {
+        int hash = 0;
+        for (int i = 0; i < stride; i += 4) {
+            hash = hash * 31 + vertices.getInt(offset + i);
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x45D9F3B;
+        return hash ^ hash >>> 16;
+    }
+
+    private static boolean equals(ByteBuffer vertices, int offsetA, int offsetB, int stride) {
+        for (int i = 0; i < stride; i += 4) {
+            if (vertices.getInt(offsetA + i) != vertices.getInt(offsetB + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void copy(ByteBuffer vertices, int from, int to, int stride) {
+        for (int i = 0; i < stride; i += 4) {
+            vertices.putInt(to + i, vertices.getInt(from + i));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package dev.dennis.osfx.render;
+
+import java.nio.ByteBuffer;
+
+public abstract class VertexJob {
+    private int vertexStart;
+
+    private int indexStart;
+
+    private boolean wideIndices;
+
+    private int packedVertexStart;
+
+    private int packedVertexCount;
+
+    protected static void addDegenerateTriangle(ByteBuffer vertex, SceneVertexFormat format) {
+        // Keeps the reserved vertex count exact for skipped triangles
+        for (int i = 0; i < 3; i++) {
+            format.putVertex(vertex, 0, 0, 0, 0, 0.0f, 0.0f, 0);
+        }
+    }
+
+    public abstract int getVertexCount();
+
+    public abstract void encode(ByteBuffer vertex, SceneVertexFormat format);
+
+    public void pack(FramePacket packet) {
+        int vertexCount = getVertexCount();
+        SceneVertexFormat format = packet.getVertexFormat();
+        ByteBuffer vertices = packet.getEncodeBuffer(vertexStart, vertexCount);
+        int vertexOffset = vertices.position();
+        encode(vertices, format);
+        if (indexStart == -1) {
+            packedVertexCount = vertexCount;
+            return;
+        }
+        packedVertexCount = VertexDeduplicator.get().deduplicate(vertices, vertexOffset, vertexCount,
+                format.getStride(), packet.getIndexStorage(wideIndices), indexStart << (wideIndices ? 2 : 1),
+                wideIndices);
+    }
+
+    public boolean isIndexed() {
+        return indexStart != -1;
+    }
+
+    public int getVertexStart() {
+        return vertexStart;
+    }
+
+    public void setVertexStart(int vertexStart) {
+        this.vertexStart = vertexStart;
+    }
+
+    public int getIndexStart() {
+        return indexStart;
+    }
+
+    public boolean isWideIndices() {
+        return wideIndices;
+    }
+
+    public void setIndexRange(int indexStart, boolean wideIndices) {
+        this.indexStart = indexStart;
+        this.wideIndices = wideIndices;
+    }
+
+    public int getPackedVertexStart() {
+        return packedVertexStart;
+    }
+
+    public void setPackedVertexStart(int packedVertexStart) {
+        this.packedVertexStart = packedVertexStart;
+    }
+
+    public int getPackedVertexCount() {
+        return packedVertexCount;
+    }
+}
@@ -0,0 +1,58 @@
+package dev.dennis.osfx.render;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public class VertexPacker {
+    private static final int JOBS_PER_TASK = 32;
+
+    private final ForkJoinPool pool;
+
+    public VertexPacker(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public void pack(FramePacket packet) {
+        List<VertexJob> jobs = packet.getVertexJobs();
+        if (jobs.isEmpty()) {
+            return;
+        }
+        pool.invoke(new PackTask(packet, jobs, 0, jobs.size()));
+    }
+
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    private static class PackTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final FramePacket packet;
+
+        private final List<VertexJob> jobs;
+
+        private final int from;
+
+        private final int to;
+
+        private PackTask(FramePacket packet, List<VertexJob> jobs, int from, int to) {
+            this.packet = packet;
+            this.jobs = jobs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= JOBS_PER_TASK) {
+                for (int i = from; i < to; i++) {
+                    jobs.get(i).pack(packet);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new PackTask(packet, jobs, from, middle), new PackTask(packet, jobs, middle, to));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package dev.dennis.osfx.render;
+
+import org.lwjgl.system.MemoryUtil;
+import org.lwjgl.system.libc.LibCString;
+
+import java.nio.ByteBuffer;
+
+public class VertexPage {
+    private final ByteBuffer vertices;
+
+    private final ThreadLocal<ByteBuffer> encodeViews;
+
+    private final int capacity;
+
+    private final int vertexStride;
+
+    private int vertexCount;
+
+    private int packedVertexCount;
+
+    private int uploadVertexStart;
+
+    public VertexPage(int capacity, int vertexStride) {
+        this.vertices = MemoryUtil.memAlloc(capacity * vertexStride);
+        this.capacity = capacity;
+        this.vertexStride = vertexStride;
+        this.encodeViews = ThreadLocal.withInitial(() -> MemoryUtil.memByteBuffer(MemoryUtil.memAddress0(vertices),
+                capacity * vertexStride));
+    }
+
+    public int reserve(int vertexCount) {
+        int vertexStart = this.vertexCount;
+        this.vertexCount += vertexCount;
+        return vertexStart;
+    }
+
+    public int pack(int vertexStart, int vertexCount) {
+        int packedVertexStart = packedVertexCount;
+        if (packedVertexStart != vertexStart) {
+            // Packed vertices only ever move down, over ranges that may overlap
+            long address = MemoryUtil.memAddress0(vertices);
+            LibCString.nmemmove(address + (long) packedVertexStart * vertexStride,
+                    address + (long) vertexStart * vertexStride, (long) vertexCount * vertexStride);
+        }
+        packedVertexCount += vertexCount;
+        return packedVertexStart;
+    }
+
+    public ByteBuffer getSlice(int vertexStart, int vertexCount) {
+        return MemoryUtil.memByteBuffer(MemoryUtil.memAddress0(vertices) + (long) vertexStart * vertexStride,
+                vertexCount * vertexStride);
+    }
+
+    // Each packing thread writes through its own view, so positioning it for a job allocates nothing
+    public ByteBuffer getEncodeBuffer(int vertexStart, int vertexCount) {
+        ByteBuffer view = encodeViews.get();
+        view.clear();
+        view.limit((vertexStart + vertexCount) * vertexStride);
+        view.position(vertexStart * vertexStride);
+        return view;
+    }
+
+    public void reset() {
+        vertexCount = 0;
+        packedVertexCount = 0;
+        uploadVertexStart = 0;
+    }
+
+    public void free() {
+        MemoryUtil.memFree(vertices);
+    }
+
+    public int getRemaining() {
+        return capacity - vertexCount;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    public int getPackedVertexCount() {
+        return packedVertexCount;
+    }
+
+    public void resetPacked() {
+        packedVertexCount = 0;
+    }
+
+    public int getUploadVertexStart() {
+        return uploadVertexStart;
+    }
+
+    public void setUploadVertexStart(int uploadVertexStart) {
+        this.uploadVertexStart = uploadVertexStart;
+    }
+}
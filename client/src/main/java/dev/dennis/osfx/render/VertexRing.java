@@ -0,0 +1,84 @@
+package dev.dennis.osfx.render;
+
+import org.lwjgl.bgfx.BGFXVertexLayout;
+
+import java.nio.ByteBuffer;
+
+import static org.lwjgl.bgfx.BGFX.*;
+
+public class VertexRing {
+    private static final int FRAMES_IN_FLIGHT = 3;
+
+    private final BGFXVertexLayout layout;
+
+    private final int vertexStride;
+
+    private short vertexBufferId;
+
+    private int capacity;
+
+    private int cursor;
+
+    private int writeCursor;
+
+    private int frameEnd;
+
+    private int growCount;
+
+    public VertexRing(BGFXVertexLayout layout, int vertexStride, int initialCapacity) {
+        this.layout = layout;
+        this.vertexStride = vertexStride;
+        this.capacity = initialCapacity;
+        this.vertexBufferId = bgfx_create_dynamic_vertex_buffer(initialCapacity, layout, 0);
+    }
+
+    // The whole frame is reserved up front, so its ranges never straddle a wrap or a resize
+    public void beginFrame(int vertexCount) {
+        if ((long) vertexCount * FRAMES_IN_FLIGHT > capacity) {
+            int newCapacity = capacity;
+            while ((long) vertexCount * FRAMES_IN_FLIGHT > newCapacity) {
+                newCapacity *= 2;
+            }
+            bgfx_destroy_dynamic_vertex_buffer(vertexBufferId);
+            vertexBufferId = bgfx_create_dynamic_vertex_buffer(newCapacity, layout, 0);
+            capacity = newCapacity;
+            cursor = 0;
+            growCount++;
+        }
+        if (cursor + vertexCount > capacity) {
+            cursor = 0;
+        }
+        writeCursor = cursor;
+        cursor += vertexCount;
+        frameEnd = cursor;
+    }
+
+    public int write(ByteBuffer vertices) {
+        int vertexCount = vertices.remaining() / vertexStride;
+        if (writeCursor + vertexCount > frameEnd) {
+            throw new IllegalStateException("Vertex ring write exceeds the frame's reservation");
+        }
+        int vertexStart = writeCursor;
+        if (vertexCount > 0) {
+            bgfx_update_dynamic_vertex_buffer(vertexBufferId, vertexStart, bgfx_make_ref(vertices));
+        }
+        writeCursor += vertexCount;
+        return vertexStart;
+    }
+
+    public void free() {
+        bgfx_destroy_dynamic_vertex_buffer(vertexBufferId);
+    }
+
+    public short getVertexBufferId() {
+        return vertexBufferId;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getGrowCount() {
+        return growCount;
+    }
+}
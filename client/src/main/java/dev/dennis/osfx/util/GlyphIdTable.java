@@ -0,0 +1,43 @@
+package dev.dennis.osfx.util;
+
+public class GlyphIdTable {
+    private final byte[][] keys;
+
+    private final int[] ids;
+
+    private final int mask;
+
+    public GlyphIdTable(byte[][] glyphs) {
+        // Open addressing on the identity hash, so a lookup is a few array reads without boxing
+        int capacity = MathUtil.getNextPowerOfTwo(Math.max(glyphs.length * 2, 2));
+        this.keys = new byte[capacity][];
+        this.ids = new int[capacity];
+        this.mask = capacity - 1;
+        for (int id = 0; id < glyphs.length; id++) {
+            if (glyphs[id] != null) {
+                put(glyphs[id], id);
+            }
+        }
+    }
+
+    private void put(byte[] glyph, int id) {
+        int index = System.identityHashCode(glyph) & mask;
+        while (keys[index] != null && keys[index] != glyph) {
+            index = index + 1 & mask;
+        }
+        keys[index] = glyph;
+        ids[index] = id;
+    }
+
+    public int get(byte[] glyph) {
+        int index = System.identityHashCode(glyph) & mask;
+        byte[] key;
+        while ((key = keys[index]) != null) {
+            if (key == glyph) {
+                return ids[index];
+            }
+            index = index + 1 & mask;
+        }
+        return -1;
+    }
+}
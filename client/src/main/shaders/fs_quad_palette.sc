@@ -0,0 +1,14 @@
+$input v_texcoord0, v_color0
+
+#include "bgfx_shader.sh"
+
+SAMPLER2D(s_texColor, 0);
+SAMPLER2D(s_palette, 1);
+
+void main()
+{
+	// The red channel holds the sprite's 8-bit palette index, where index 0 is transparent
+	float index = floor(texture2D(s_texColor, v_texcoord0).r * 255.0 + 0.5);
+	vec3 color = texture2DLod(s_palette, vec2((index + 0.5) / 256.0, 0.5), 0.0).rgb;
+	gl_FragColor = vec4(color, step(0.5, index)) * v_color0;
+}
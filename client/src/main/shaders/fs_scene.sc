@@ -6,5 +6,10 @@ SAMPLER2DARRAY(s_texColor, 0);
 
 void main()
 {
-	gl_FragColor = texture2DArray(s_texColor, vec3(v_texcoord0.xy, v_textureId)) * v_color0;
+	vec4 color = texture2DArray(s_texColor, vec3(v_texcoord0.xy, v_textureId)) * v_color0;
+	if (color.a <= 0.0)
+	{
+		discard;
+	}
+	gl_FragColor = color;
 }
@@ -0,0 +1,8 @@
+SAMPLER2D(s_palette, 1);
+
+vec4 paletteColor(vec4 color)
+{
+	// The red and green bytes hold the low and high byte of the HSL index into the 256x256 palette
+	vec2 index = floor(color.rg * 255.0 + 0.5);
+	return vec4(texture2DLod(s_palette, (index + 0.5) / 256.0, 0.0).rgb, color.a);
+}
@@ -2,7 +2,8 @@ vec2  v_texcoord0  : TEXCOORD0 = vec2(0.0, 0.0);
 vec4  v_color0     : COLOR0    = vec4(1.0, 1.0, 1.0, 1.0);
 float v_textureId  : TEXCOORD7 = 0.0;
 
-vec3  a_position   : POSITION;
+vec4  a_position   : POSITION;
 vec2  a_texcoord0  : TEXCOORD0;
 vec4  a_color0     : COLOR0;
 float a_texcoord7  : TEXCOORD7;
+vec4  i_data0      : TEXCOORD7;
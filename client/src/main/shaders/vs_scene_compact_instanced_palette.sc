@@ -0,0 +1,16 @@
+$input a_position, a_texcoord0, a_color0, i_data0
+$output v_texcoord0, v_color0, v_textureId
+
+#include "bgfx_shader.sh"
+#include "scene_palette.sh"
+
+void main()
+{
+	float s = sin(i_data0.w);
+	float c = cos(i_data0.w);
+	vec3 position = vec3(a_position.x * c + a_position.z * s, a_position.y, a_position.z * c - a_position.x * s);
+	gl_Position = mul(u_viewProj, vec4(position + i_data0.xyz, 1.0));
+	v_texcoord0 = a_texcoord0;
+	v_color0 = paletteColor(a_color0);
+	v_textureId = a_position.w;
+}
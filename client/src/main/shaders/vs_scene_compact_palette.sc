@@ -0,0 +1,13 @@
+$input a_position, a_texcoord0, a_color0
+$output v_texcoord0, v_color0, v_textureId
+
+#include "bgfx_shader.sh"
+#include "scene_palette.sh"
+
+void main()
+{
+	gl_Position = mul(u_modelViewProj, vec4(a_position.xyz, 1.0));
+	v_texcoord0 = a_texcoord0;
+	v_color0 = paletteColor(a_color0);
+	v_textureId = a_position.w;
+}
@@ -1,8 +1,7 @@
 package dev.dennis.osfx.inject.impl;
 
 import dev.dennis.osfx.api.Font;
-
-import java.util.Map;
+import dev.dennis.osfx.util.GlyphIdTable;
 
 public class FontImpl implements Font {
     @Override
@@ -21,7 +20,7 @@ public class FontImpl implements Font {
     }
 
     @Override
-    public Map<byte[], Integer> getGlyphIdMap() {
+    public GlyphIdTable getGlyphIdTable() {
         return null;
     }
 
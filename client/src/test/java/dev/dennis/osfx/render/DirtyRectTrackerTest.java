@@ -0,0 +1,83 @@
+package dev.dennis.osfx.render;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DirtyRectTrackerTest {
+    private static final int WIDTH = 765;
+
+    private static final int HEIGHT = 503;
+
+    @Test
+    public void uploadedRectsReproduceEveryFrame() {
+        Random random = new Random(0);
+        DirtyRectTracker tracker = new DirtyRectTracker();
+        int[] pixels = new int[WIDTH * HEIGHT];
+        int[] texture = new int[WIDTH * HEIGHT];
+
+        for (int frame = 0; frame < 50; frame++) {
+            for (int i = 0; i < random.nextInt(20); i++) {
+                int x = random.nextInt(WIDTH - 50);
+                int y = random.nextInt(HEIGHT - 50);
+                int width = 1 + random.nextInt(50);
+                int height = 1 + random.nextInt(50);
+                int color = random.nextInt();
+                for (int py = y; py < y + height; py++) {
+                    for (int px = x; px < x + width; px++) {
+                        pixels[py * WIDTH + px] = color;
+                    }
+                }
+            }
+
+            int rectCount = tracker.update(pixels, WIDTH, HEIGHT);
+            int[] rects = tracker.getRects();
+            for (int i = 0; i < rectCount; i++) {
+                int offset = i * DirtyRectTracker.RECT_SIZE;
+                for (int y = rects[offset + 1]; y < rects[offset + 1] + rects[offset + 3]; y++) {
+                    int start = y * WIDTH + rects[offset];
+                    System.arraycopy(pixels, start, texture, start, rects[offset + 2]);
+                }
+            }
+            assertArrayEquals(pixels, texture);
+        }
+    }
+
+    @Test
+    public void unchangedFrameHasNoRects() {
+        DirtyRectTracker tracker = new DirtyRectTracker();
+        int[] pixels = new int[WIDTH * HEIGHT];
+
+        assertEquals(1, tracker.update(pixels, WIDTH, HEIGHT));
+        assertEquals(0, tracker.update(pixels, WIDTH, HEIGHT));
+
+        pixels[100 * WIDTH + 100] = 0xFFFFFF;
+        assertEquals(1, tracker.update(pixels, WIDTH, HEIGHT));
+        assertEquals(64 * 16, tracker.getDirtyPixels());
+        assertEquals(0, tracker.update(pixels, WIDTH, HEIGHT));
+    }
+
+    @Test
+    public void blankFollowsThePixels() {
+        DirtyRectTracker tracker = new DirtyRectTracker();
+        int[] pixels = new int[WIDTH * HEIGHT];
+        tracker.update(pixels, WIDTH, HEIGHT);
+        assertTrue(tracker.isBlank());
+
+        pixels[(HEIGHT - 1) * WIDTH + WIDTH - 1] = 0xFF00FF;
+        tracker.update(pixels, WIDTH, HEIGHT);
+        assertFalse(tracker.isBlank());
+
+        tracker.update(pixels, WIDTH, HEIGHT);
+        assertFalse(tracker.isBlank());
+
+        pixels[(HEIGHT - 1) * WIDTH + WIDTH - 1] = 0;
+        tracker.update(pixels, WIDTH, HEIGHT);
+        assertTrue(tracker.isBlank());
+    }
+}
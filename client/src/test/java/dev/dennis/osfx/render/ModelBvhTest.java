@@ -0,0 +1,131 @@
+package dev.dennis.osfx.render;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ModelBvhTest {
+    private static final int MODEL_COUNT = 2000;
+
+    private static final int ITERATIONS = 2000;
+
+    public static void main(String[] args) {
+        Random random = new Random(0);
+        float[] boxes = randomBoxes(random, MODEL_COUNT);
+        ModelBvh bvh = new ModelBvh();
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            pick(bvh, boxes, random);
+        }
+
+        long start = System.nanoTime();
+        int hits = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            hits += pick(bvh, boxes, random);
+        }
+        long nanos = (System.nanoTime() - start) / ITERATIONS;
+
+        System.out.println(String.format("%d models: build and raycast %.3f ms, %.1f hits", MODEL_COUNT,
+                nanos / 1_000_000.0, hits / (double) ITERATIONS));
+    }
+
+    @Test
+    public void raycastMatchesBruteForce() {
+        Random random = new Random(1);
+        float[] boxes = randomBoxes(random, MODEL_COUNT);
+        ModelBvh bvh = new ModelBvh();
+        add(bvh, boxes);
+        bvh.build();
+
+        for (int i = 0; i < 200; i++) {
+            float[] ray = randomRay(random);
+            int hitCount = bvh.raycast(ray[0], ray[1], ray[2], ray[3], ray[4], ray[5]);
+
+            long[] actual = new long[hitCount];
+            for (int j = 0; j < hitCount; j++) {
+                actual[j] = bvh.getHitHash(j);
+                if (j > 0) {
+                    assertTrue(bvh.getHitDistance(j) >= bvh.getHitDistance(j - 1));
+                }
+            }
+            Arrays.sort(actual);
+            assertArrayEquals(bruteForce(boxes, ray), actual);
+        }
+    }
+
+    @Test
+    public void stackedModelsAreAllHit() {
+        ModelBvh bvh = new ModelBvh();
+        for (int i = 0; i < 100; i++) {
+            bvh.add(-64, -200, 1000, 64, 0, 1128, i);
+        }
+        bvh.build();
+
+        assertEquals(100, bvh.raycast(0, -100, 0, 0, 0, 1));
+        assertEquals(0, bvh.raycast(0, -300, 0, 0, 0, 1));
+    }
+
+    private static int pick(ModelBvh bvh, float[] boxes, Random random) {
+        bvh.clear();
+        add(bvh, boxes);
+        bvh.build();
+        float[] ray = randomRay(random);
+        return bvh.raycast(ray[0], ray[1], ray[2], ray[3], ray[4], ray[5]);
+    }
+
+    private static float[] randomBoxes(Random random, int count) {
+        // Scattered across a 104 tile scene like models around the camera
+        float[] boxes = new float[count * 6];
+        for (int i = 0; i < count; i++) {
+            float x = random.nextInt(104 * 128) - 52 * 128;
+            float z = random.nextInt(104 * 128) - 52 * 128;
+            float radius = 32 + random.nextInt(256);
+            float height = 32 + random.nextInt(512);
+            boxes[i * 6] = x - radius;
+            boxes[i * 6 + 1] = -height;
+            boxes[i * 6 + 2] = z - radius;
+            boxes[i * 6 + 3] = x + radius;
+            boxes[i * 6 + 4] = 0;
+            boxes[i * 6 + 5] = z + radius;
+        }
+        return boxes;
+    }
+
+    private static float[] randomRay(Random random) {
+        // From a camera above the scene, looking down at a random point on the ground
+        float targetX = random.nextInt(40 * 128) - 20 * 128;
+        float targetZ = random.nextInt(40 * 128) - 20 * 128;
+        return new float[]{0, -1500, 0, targetX, 1500, targetZ};
+    }
+
+    private static void add(ModelBvh bvh, float[] boxes) {
+        for (int i = 0; i < boxes.length / 6; i++) {
+            bvh.add(boxes[i * 6], boxes[i * 6 + 1], boxes[i * 6 + 2], boxes[i * 6 + 3], boxes[i * 6 + 4],
+                    boxes[i * 6 + 5], i);
+        }
+    }
+
+    private static long[] bruteForce(float[] boxes, float[] ray) {
+        long[] hits = new long[boxes.length / 6];
+        int hitCount = 0;
+        for (int i = 0; i < boxes.length / 6; i++) {
+            float near = 0.0f;
+            float far = Float.POSITIVE_INFINITY;
+            for (int axis = 0; axis < 3; axis++) {
+                float t0 = (boxes[i * 6 + axis] - ray[axis]) / ray[axis + 3];
+                float t1 = (boxes[i * 6 + axis + 3] - ray[axis]) / ray[axis + 3];
+                near = Math.max(near, Math.min(t0, t1));
+                far = Math.min(far, Math.max(t0, t1));
+            }
+            if (near <= far) {
+                hits[hitCount++] = i;
+            }
+        }
+        return Arrays.copyOf(hits, hitCount);
+    }
+}
@@ -0,0 +1,34 @@
+package dev.dennis.osfx.render;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ModelInstancesTest {
+    @Test
+    public void posesDifferingInOneVertexAreNotMerged() {
+        TestModel model = new TestModel(64);
+        ModelBounds bounds = new ModelBounds();
+        FramePacket packet = new FramePacket(SceneVertexFormat.STANDARD, 1);
+        try {
+            bounds.set(model);
+            long firstStamp = bounds.getStamp();
+            ModelInstances instances = packet.obtainModelInstances(model, firstStamp);
+            instances.add(0, 0, 0, 0);
+
+            // Re-posed in place like the client's shared animation models, between any evenly spread samples
+            model.getVerticesY()[100] += 8;
+            bounds.set(model);
+            long secondStamp = bounds.getStamp();
+
+            assertNotEquals(firstStamp, secondStamp);
+            assertNull(packet.getModelInstances(model, secondStamp));
+            assertSame(instances, packet.getModelInstances(model, firstStamp));
+        } finally {
+            packet.reset(null);
+            packet.free();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package dev.dennis.osfx.render;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ModelVertexJobTest {
+    private static final int TRIANGLE_COUNT = 512;
+
+    private static final int ITERATIONS = 2000;
+
+    private static final long MAX_ALLOCATED_BYTES = 64 * 1024;
+
+    private static final int MODELS_PER_FRAME = 64;
+
+    private static final int FRAMES = 200;
+
+    @Test
+    public void encodeWritesTextureCoordinates() {
+        ModelVertexJob job = new ModelVertexJob();
+        job.set(new TestModel(2), new int[1], false);
+        ByteBuffer vertices = encode(job, SceneVertexFormat.STANDARD);
+
+        // Unmapped textured triangle
+        assertTexCoord(vertices, 0, 0.0f, 1.0f);
+        assertTexCoord(vertices, 1, 1.0f, 1.0f);
+        assertTexCoord(vertices, 2, 0.0f, 0.0f);
+
+        // Mapped onto its own vertices, so they form the texture's axes
+        assertTexCoord(vertices, 3, 0.0f, 0.0f);
+        assertTexCoord(vertices, 4, 1.0f, 0.0f);
+        assertTexCoord(vertices, 5, 0.0f, 1.0f);
+    }
+
+    @Test
+    public void encodeDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        ModelVertexJob job = new ModelVertexJob();
+        job.set(new TestModel(TRIANGLE_COUNT), new int[1], false);
+        ByteBuffer vertices = ByteBuffer.allocateDirect(job.getVertexCount() * SceneVertexFormat.STANDARD.getStride())
+                .order(ByteOrder.nativeOrder());
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            vertices.clear();
+            job.encode(vertices, SceneVertexFormat.STANDARD);
+        }
+
+        long start = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < ITERATIONS; i++) {
+            vertices.clear();
+            job.encode(vertices, SceneVertexFormat.STANDARD);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - start;
+
+        assertTrue("encode allocated " + allocated + " bytes", allocated < MAX_ALLOCATED_BYTES);
+    }
+
+    @Test
+    public void recordingDoesNotAllocate() {
+        com.sun.management.ThreadMXBean threadBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        FramePacket packet = new FramePacket(SceneVertexFormat.STANDARD, 1);
+        TestModel[] models = new TestModel[MODELS_PER_FRAME];
+        for (int i = 0; i < models.length; i++) {
+            models[i] = new TestModel(16 + i * 8);
+        }
+        int[] colorPalette = new int[1];
+
+        try {
+            // Both the inline and the deferred copy paths, the latter packing after recording like the worker pool
+            for (int i = 0; i < FRAMES; i++) {
+                recordFrame(packet, models, colorPalette, i % 2 == 0);
+            }
+
+            long start = threadBean.getThreadAllocatedBytes(threadId);
+            for (int i = 0; i < FRAMES; i++) {
+                recordFrame(packet, models, colorPalette, i % 2 == 0);
+            }
+            long allocated = threadBean.getThreadAllocatedBytes(threadId) - start;
+
+            assertEquals("recording allocated " + allocated + " bytes", 0, allocated);
+        } finally {
+            packet.reset(null);
+            packet.free();
+        }
+    }
+
+    // Mirrors Renderer.drawModel's uncached path into a packet, then the packing and reset around it
+    private static void recordFrame(FramePacket packet, TestModel[] models, int[] colorPalette, boolean deferred) {
+        for (int i = 0; i < models.length; i++) {
+            ModelVertexJob job = packet.obtainModelJob();
+            job.set(models[i], colorPalette, deferred);
+
+            int vertexCount = job.getVertexCount();
+            int vertexStart = packet.reserveVertices(vertexCount);
+            job.setVertexStart(vertexStart);
+            job.setPackedVertexStart(vertexStart);
+            boolean wideIndices = VertexDeduplicator.isWideIndices(vertexCount);
+            job.setIndexRange(packet.reserveIndices(vertexCount, wideIndices), wideIndices);
+
+            if (deferred) {
+                packet.getVertexJobs().add(job);
+            } else {
+                job.pack(packet);
+                packet.getVertexJobs().add(job);
+            }
+            packet.addModelCommand().set(0, i * 128, 0, 0, job);
+        }
+
+        if (deferred) {
+            for (int i = 0; i < packet.getVertexJobs().size(); i++) {
+                packet.getVertexJobs().get(i).pack(packet);
+            }
+        }
+        packet.compactVertices();
+        packet.reset(null);
+    }
+
+    private static ByteBuffer encode(ModelVertexJob job, SceneVertexFormat format) {
+        ByteBuffer vertices = ByteBuffer.allocate(job.getVertexCount() * format.getStride())
+                .order(ByteOrder.nativeOrder());
+        job.encode(vertices, format);
+        return vertices;
+    }
+
+    private static void assertTexCoord(ByteBuffer vertices, int vertex, float u, float v) {
+        int offset = vertex * SceneVertexFormat.STANDARD.getStride();
+        assertEquals(u, vertices.getFloat(offset + 16), 1e-5f);
+        assertEquals(v, vertices.getFloat(offset + 20), 1e-5f);
+    }
+}
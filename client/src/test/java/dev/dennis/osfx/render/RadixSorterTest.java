@@ -0,0 +1,88 @@
+package dev.dennis.osfx.render;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RadixSorterTest {
+    private static final int TRIANGLE_COUNT = 100_000;
+
+    private static final int ITERATIONS = 200;
+
+    public static void main(String[] args) {
+        RadixSorter sorter = new RadixSorter();
+        int[] keys = randomKeys(new Random(0), TRIANGLE_COUNT);
+
+        for (int i = 0; i < ITERATIONS; i++) {
+            sort(sorter, keys);
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            sort(sorter, keys);
+        }
+        long radixNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            Arrays.sort(keys.clone());
+        }
+        long arraysNanos = (System.nanoTime() - start) / ITERATIONS;
+
+        System.out.println(String.format("%d triangles: radix sort %.3f ms, Arrays.sort %.3f ms", TRIANGLE_COUNT,
+                radixNanos / 1_000_000.0, arraysNanos / 1_000_000.0));
+    }
+
+    @Test
+    public void sortOrdersKeysAscending() {
+        RadixSorter sorter = new RadixSorter();
+        int[] keys = randomKeys(new Random(1), 5000);
+        sort(sorter, keys);
+
+        int[] sorted = keys.clone();
+        Arrays.sort(sorted);
+        int[] actual = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            actual[i] = sorter.getKey(i);
+            assertEquals(actual[i], keys[sorter.getValue(i)]);
+        }
+        assertArrayEquals(sorted, actual);
+    }
+
+    @Test
+    public void sortIsStable() {
+        RadixSorter sorter = new RadixSorter();
+        for (int i = 0; i < 3000; i++) {
+            sorter.add(i % 3 << 12, i);
+        }
+        sorter.sort();
+
+        for (int i = 1; i < sorter.getCount(); i++) {
+            if (sorter.getKey(i) == sorter.getKey(i - 1)) {
+                assertTrue(sorter.getValue(i) > sorter.getValue(i - 1));
+            }
+        }
+    }
+
+    private static int[] randomKeys(Random random, int count) {
+        // Same key layout as transparent triangles: 22 bits of depth above 4 bits of priority
+        int[] keys = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = random.nextInt(1 << 22) << 4 | random.nextInt(16);
+        }
+        return keys;
+    }
+
+    private static void sort(RadixSorter sorter, int[] keys) {
+        sorter.clear();
+        for (int i = 0; i < keys.length; i++) {
+            sorter.add(keys[i], i);
+        }
+        sorter.sort();
+    }
+}
@@ -0,0 +1,56 @@
+package dev.dennis.osfx.render;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SpriteAtlasPageTest {
+    private static final int PAGE_SIZE = 512;
+
+    @Test
+    public void allocationsStayInBoundsWithoutOverlapping() {
+        Random random = new Random(0);
+        SpriteAtlasPage page = new SpriteAtlasPage(0, PAGE_SIZE);
+        boolean[] used = new boolean[PAGE_SIZE * PAGE_SIZE];
+
+        int allocated = 0;
+        for (int i = 0; i < 1000; i++) {
+            int width = 4 + random.nextInt(60);
+            int height = 4 + random.nextInt(60);
+            int position = page.allocate(width, height);
+            if (position == -1) {
+                continue;
+            }
+            int x = position >>> 16;
+            int y = position & 0xFFFF;
+            assertTrue(x + width <= PAGE_SIZE && y + height <= PAGE_SIZE);
+            for (int py = y; py < y + height; py++) {
+                for (int px = x; px < x + width; px++) {
+                    assertFalse(used[py * PAGE_SIZE + px]);
+                    used[py * PAGE_SIZE + px] = true;
+                }
+            }
+            allocated++;
+        }
+        assertTrue(allocated > 0);
+    }
+
+    @Test
+    public void clearInvalidatesEntries() {
+        SpriteAtlasPage page = new SpriteAtlasPage(0, PAGE_SIZE);
+        assertEquals(-1, page.allocate(PAGE_SIZE + 1, 16));
+
+        int position = page.allocate(32, 32);
+        SpriteAtlasEntry entry = new SpriteAtlasEntry(7, page, position >>> 16, position & 0xFFFF, 32, 32);
+        assertTrue(entry.isValid(7));
+        assertFalse(entry.isValid(8));
+
+        page.clear();
+        assertFalse(entry.isValid(7));
+        assertEquals(0, page.allocate(32, 32));
+    }
+}
@@ -0,0 +1,142 @@
+package dev.dennis.osfx.render;
+
+import dev.dennis.osfx.api.Model;
+
+class TestModel implements Model {
+    private final int triangleCount;
+
+    private final int[] verticesX;
+
+    private final int[] verticesY;
+
+    private final int[] verticesZ;
+
+    private final int[] indicesA;
+
+    private final int[] indicesB;
+
+    private final int[] indicesC;
+
+    private final int[] colors;
+
+    private final short[] triangleTextures;
+
+    private final byte[] textureMapping;
+
+    private final int[] texIndicesP = {0};
+
+    private final int[] texIndicesM = {1};
+
+    private final int[] texIndicesN = {2};
+
+    TestModel(int triangleCount) {
+        this.triangleCount = triangleCount;
+        this.verticesX = new int[triangleCount * 3];
+        this.verticesY = new int[triangleCount * 3];
+        this.verticesZ = new int[triangleCount * 3];
+        this.indicesA = new int[triangleCount];
+        this.indicesB = new int[triangleCount];
+        this.indicesC = new int[triangleCount];
+        this.colors = new int[triangleCount];
+        this.triangleTextures = new short[triangleCount];
+        this.textureMapping = new byte[triangleCount];
+        for (int i = 0; i < triangleCount; i++) {
+            indicesA[i] = i * 3;
+            indicesB[i] = i * 3 + 1;
+            indicesC[i] = i * 3 + 2;
+            verticesX[i * 3 + 1] = 128;
+            verticesZ[i * 3 + 2] = 128;
+            textureMapping[i] = (byte) (i % 2 == 0 ? -1 : 0);
+        }
+    }
+
+    @Override
+    public int getVertexCount() {
+        return verticesX.length;
+    }
+
+    @Override
+    public int[] getVerticesX() {
+        return verticesX;
+    }
+
+    @Override
+    public int[] getVerticesY() {
+        return verticesY;
+    }
+
+    @Override
+    public int[] getVerticesZ() {
+        return verticesZ;
+    }
+
+    @Override
+    public int getTriangleCount() {
+        return triangleCount;
+    }
+
+    @Override
+    public int[] getIndicesA() {
+        return indicesA;
+    }
+
+    @Override
+    public int[] getIndicesB() {
+        return indicesB;
+    }
+
+    @Override
+    public int[] getIndicesC() {
+        return indicesC;
+    }
+
+    @Override
+    public int[] getColorsA() {
+        return colors;
+    }
+
+    @Override
+    public int[] getColorsB() {
+        return colors;
+    }
+
+    @Override
+    public int[] getColorsC() {
+        return colors;
+    }
+
+    @Override
+    public int[] getTextureIndicesP() {
+        return texIndicesP;
+    }
+
+    @Override
+    public int[] getTextureIndicesM() {
+        return texIndicesM;
+    }
+
+    @Override
+    public int[] getTextureIndicesN() {
+        return texIndicesN;
+    }
+
+    @Override
+    public short[] getTriangleTextures() {
+        return triangleTextures;
+    }
+
+    @Override
+    public byte[] getTextureMapping() {
+        return textureMapping;
+    }
+
+    @Override
+    public byte[] getTriangleAlphas() {
+        return null;
+    }
+
+    @Override
+    public byte[] getTrianglePriorities() {
+        return null;
+    }
+}